@@ -0,0 +1,56 @@
+package pt.allanborges.restaurant.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.allanborges.restaurant.model.enums.Role;
+
+import javax.crypto.SecretKey;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request's bearer token: the former three parses (isValid, getUsername,
+ * getRoles, each with a fresh parser), a single verifying parse, and a verified-cache hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "dzot029cVi1ztRpwj8NOUetcrgXgLor2aOX0yNM0Wvq6XLKVmchaSJ8tBH2mxtRXrkKzfOhRKDU8KPStoO63bhnAGcNJhpD3ZLrWQ5TzZgQ=";
+
+    private SecretKey key;
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        jwtService = new JwtService(SECRET, "restaurant-api", 120, 10_000);
+        token = jwtService.generate("benchmark-user", Set.of(Role.ADMIN, Role.KITCHEN));
+        jwtService.verify(token);
+    }
+
+    @Benchmark
+    public void threeParses(Blackhole blackhole) {
+        blackhole.consume(Jwts.parser().verifyWith(key).build().parseSignedClaims(token));
+        blackhole.consume(Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload().getSubject());
+        Claims claims = Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+        blackhole.consume(claims.get("roles"));
+    }
+
+    @Benchmark
+    public JwtPrincipal singleParse() {
+        return jwtService.parse(token);
+    }
+
+    @Benchmark
+    public Object cachedVerify() {
+        return jwtService.verify(token);
+    }
+
+}
@@ -0,0 +1,117 @@
+package pt.allanborges.restaurant.service.impl;
+
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pt.allanborges.restaurant.RestaurantApplication;
+import pt.allanborges.restaurant.model.dtos.DishDTO;
+import pt.allanborges.restaurant.model.dtos.DishFields;
+import pt.allanborges.restaurant.model.entities.Dish;
+import pt.allanborges.restaurant.model.entities.DishCode;
+import pt.allanborges.restaurant.model.mapper.DishMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cost of reading a menu of seeded dishes: the tuple projection the catalog load uses, against loading the
+ * dishes as entities with their codes fetch-joined and mapping them. Both bypass the second-level cache.
+ * <p>
+ * Boots the application against its configured database, the same one the tests need.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DishProjectionBenchmark {
+
+    private static final int CODES = 20;
+
+    @Param({"100", "1000"})
+    public int dishes;
+
+    private ConfigurableApplicationContext context;
+    private EntityManagerFactory entityManagerFactory;
+    private DishMapper dishMapper;
+    private JdbcTemplate jdbcTemplate;
+    private final String codePrefix = "BENCH_" + System.nanoTime() + "_";
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantApplication.class).web(WebApplicationType.NONE).run();
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        dishMapper = context.getBean(DishMapper.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        jdbcTemplate.update("""
+                INSERT INTO DISH_CODES (ID, CODE, DESCRIPTION, CREATED_DATE)
+                SELECT DISH_CODE_SEQ.NEXTVAL, ? || LEVEL, 'Seeded for the projection benchmark', SYSTIMESTAMP FROM DUAL CONNECT BY LEVEL <= ?
+                """, codePrefix, CODES);
+        jdbcTemplate.update("""
+                INSERT INTO DISHES (ID, NAME, DESCRIPTION, PRICE, STOCK, CODE_ID, IMAGE_URL, CREATED_DATE)
+                SELECT DISH_SEQ.NEXTVAL, 'Benchmark dish ' || c.CODE || ' ' || n.LVL, 'Seeded for the projection benchmark',
+                       1 + MOD(n.LVL * 37, 20000) / 100, MOD(n.LVL * 13, 1000), c.ID,
+                       'https://example.com/' || c.CODE || '-' || n.LVL || '.jpg', SYSTIMESTAMP
+                FROM (SELECT LEVEL AS LVL FROM DUAL CONNECT BY LEVEL <= ?) n
+                CROSS JOIN DISH_CODES c
+                WHERE c.CODE LIKE ? || '%'
+                """, dishes / CODES, codePrefix);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM DISHES WHERE CODE_ID IN (SELECT ID FROM DISH_CODES WHERE CODE LIKE ? || '%')", codePrefix);
+        jdbcTemplate.update("DELETE FROM DISH_CODES WHERE CODE LIKE ? || '%'", codePrefix);
+        context.close();
+    }
+
+    @Benchmark
+    public List<DishDTO> projection() {
+        return read(entityManager -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+            Root<Dish> root = cq.from(Dish.class);
+            Join<Dish, DishCode> code = root.join("code");
+            cq.multiselect(DishProjection.selections(root, code, DishFields.ALL))
+                    .where(cb.like(code.get("code"), codePrefix + "%"));
+            return DishProjection.toDTOs(entityManager.createQuery(cq).getResultList(), DishFields.ALL);
+        });
+    }
+
+    @Benchmark
+    public List<DishDTO> entities() {
+        return read(entityManager -> dishMapper.toDTOList(entityManager
+                .createQuery("select d from Dish d join fetch d.code c where c.code like :prefix", Dish.class)
+                .setParameter("prefix", codePrefix + "%")
+                .getResultList()));
+    }
+
+    // A fresh persistence context per read, as each request gets
+    private List<DishDTO> read(Function<EntityManager, List<DishDTO>> query) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.setProperty("jakarta.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+            entityManager.setProperty("jakarta.persistence.cache.storeMode", CacheStoreMode.BYPASS);
+            entityManager.getTransaction().begin();
+            try {
+                return query.apply(entityManager);
+            } finally {
+                entityManager.getTransaction().rollback();
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+
+}
@@ -2,10 +2,12 @@ package pt.allanborges.restaurant.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pt.allanborges.restaurant.controller.apidocs.AuthApiDocs;
+import pt.allanborges.restaurant.security.JwtService;
 import pt.allanborges.restaurant.security.dtos.AuthRequest;
 import pt.allanborges.restaurant.security.dtos.AuthResponse;
 import pt.allanborges.restaurant.security.dtos.RegisterUserRequest;
@@ -39,4 +41,10 @@ public class AuthController implements AuthApiDocs {
         return ResponseEntity.status(HttpStatus.CREATED).body(resp);
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        userService.logout(JwtService.bearerToken(authorization));
+        return ResponseEntity.noContent().build();
+    }
+
 }
\ No newline at end of file
@@ -1,25 +1,57 @@
 package pt.allanborges.restaurant.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pt.allanborges.restaurant.controller.apidocs.DishApiDocs;
+import pt.allanborges.restaurant.model.dtos.CursorPageDTO;
+import pt.allanborges.restaurant.model.dtos.DishChangesDTO;
+import pt.allanborges.restaurant.model.dtos.DishBulkDTO;
 import pt.allanborges.restaurant.model.dtos.DishDTO;
+import pt.allanborges.restaurant.model.dtos.DishFacetsDTO;
+import pt.allanborges.restaurant.model.dtos.DishFields;
 import pt.allanborges.restaurant.model.dtos.DishFilterDTO;
+import pt.allanborges.restaurant.model.dtos.StockReservationDTO;
 import pt.allanborges.restaurant.service.DishService;
+import pt.allanborges.restaurant.service.catalog.DishCatalog;
+import pt.allanborges.restaurant.service.catalog.DishEventBroadcaster;
+import pt.allanborges.restaurant.service.catalog.EncodedMenu;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Supplier;
 
 @AllArgsConstructor
 @RestController
 @RequestMapping("/v1/dishes")
 public class DishController implements DishApiDocs {
 
+    private static final CacheControl CATALOG_CACHE_CONTROL = CacheControl.noCache().cachePublic();
+    private static final int EXPORT_FLUSH_EVERY = 500;
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
+
     private final DishService dishService;
+    private final DishCatalog dishCatalog;
+    private final DishEventBroadcaster dishEvents;
+    private final ObjectMapper objectMapper;
 
 
     @PreAuthorize("hasAnyRole('ADMIN','KITCHEN')")
@@ -29,16 +61,38 @@ public class DishController implements DishApiDocs {
         return ResponseEntity.status(HttpStatus.CREATED).body(dishService.createDish(dishDTO));
     }
 
+    // Writes the catalog's pre-encoded bytes; only sparse fieldsets and an oversized catalog are serialized per request
     @Override
     @GetMapping
-    public ResponseEntity<List<DishDTO>> findAllDishes() {
-        return ResponseEntity.ok().body(dishService.findAllDishes());
+    public ResponseEntity<byte[]> findAllDishes(@RequestParam(name = "fields", required = false) final String fields,
+                                                final WebRequest request) {
+        boolean sparse = fields != null && !fields.isBlank();
+        String version = dishCatalog.etag();
+        boolean gzip = !sparse && EncodedMenu.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        // a strong tag names one exact byte sequence, so the compressed body carries its own. The tag is checked
+        // before the catalog is touched, so a revalidation never loads it
+        String etag = gzip ? version + GZIP_ETAG_SUFFIX : version;
+        if (request.checkNotModified(etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CATALOG_CACHE_CONTROL)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING).build();
+
+        EncodedMenu menu = sparse ? null : dishService.findAllDishesEncoded().orElse(null);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).cacheControl(CATALOG_CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING).contentType(MediaType.APPLICATION_JSON);
+        if (sparse)
+            return response.body(serialize(dishService.findAllDishes(), DishFields.parse(fields)));
+        // a catalog too big to pre-encode goes out uncompressed, still under the tag chosen above
+        if (menu == null)
+            return response.body(serialize(dishService.findAllDishes(), DishFields.ALL));
+        if (gzip)
+            return response.header(HttpHeaders.CONTENT_ENCODING, EncodedMenu.GZIP).body(menu.gzip());
+        return response.body(menu.identity());
     }
 
     @Override
     @GetMapping("/{dishId}")
-    public ResponseEntity<DishDTO> findDishById(@PathVariable final Long dishId) {
-        return ResponseEntity.ok().body(dishService.getDishById(dishId));
+    public ResponseEntity<DishDTO> findDishById(@PathVariable final Long dishId, final WebRequest request) {
+        return conditionalGet(request, () -> dishService.getDishById(dishId));
     }
 
     @PreAuthorize("hasAnyRole('ADMIN','KITCHEN')")
@@ -48,14 +102,113 @@ public class DishController implements DishApiDocs {
         return ResponseEntity.ok().body(dishService.updateDish(dishId, dishDTO));
     }
 
+    @PreAuthorize("hasAnyRole('ADMIN','KITCHEN')")
+    @Override
+    @PostMapping("/bulk")
+    public ResponseEntity<List<DishDTO>> upsertDishes(@RequestBody @Valid final DishBulkDTO dishBulkDTO) {
+        return ResponseEntity.ok().body(dishService.upsertDishes(dishBulkDTO.getDishes()));
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN','KITCHEN','WAITER')")
+    @Override
+    @PostMapping("/{dishId}/stock/reservations")
+    public ResponseEntity<StockReservationDTO> reserveStock(@PathVariable final Long dishId,
+                                                            @RequestBody @Valid final StockReservationDTO reservation) {
+        return ResponseEntity.ok().body(dishService.reserveStock(dishId, reservation.getQuantity()));
+    }
+
+    // nothing ties a release to an earlier reservation, so only the roles that may set the stock outright can add to it
+    @PreAuthorize("hasAnyRole('ADMIN','KITCHEN')")
+    @Override
+    @PostMapping("/{dishId}/stock/releases")
+    public ResponseEntity<StockReservationDTO> releaseStock(@PathVariable final Long dishId,
+                                                            @RequestBody @Valid final StockReservationDTO release) {
+        return ResponseEntity.ok().body(dishService.releaseStock(dishId, release.getQuantity()));
+    }
+
     @Override
     @GetMapping("/paged")
     public ResponseEntity<Page<DishDTO>> findAllDishesWithFilters(@RequestParam(name = "page", defaultValue = "0") final Integer page,
                                                                   @RequestParam(name = "size", defaultValue = "10") final Integer size,
                                                                   @RequestParam(name = "sort", defaultValue = "DESC") final String sort,
                                                                   @RequestParam(name = "orderBy", required = false) final String orderBy,
-                                                                  @ModelAttribute final DishFilterDTO filter) {
-        return ResponseEntity.ok().body(dishService.findAllDishesPaginatedWithFilters(page, size, sort, orderBy, filter));
+                                                                  @ModelAttribute final DishFilterDTO filter,
+                                                                  final WebRequest request) {
+        return conditionalGet(request, () -> dishService.findAllDishesPaginatedWithFilters(page, size, sort, orderBy, filter));
+    }
+
+    @Override
+    @GetMapping(value = "/paged", params = "cursor")
+    public ResponseEntity<CursorPageDTO<DishDTO>> findAllDishesWithCursor(@RequestParam(name = "cursor", required = false) final String cursor,
+                                                                          @RequestParam(name = "size", defaultValue = "10") final Integer size,
+                                                                          @RequestParam(name = "sort", defaultValue = "DESC") final String sort,
+                                                                          @RequestParam(name = "orderBy", defaultValue = "id") final String orderBy,
+                                                                          @ModelAttribute final DishFilterDTO filter,
+                                                                          final WebRequest request) {
+        return conditionalGet(request, () -> dishService.findAllDishesWithCursor(cursor, size, sort, orderBy, filter));
+    }
+
+    @Override
+    @GetMapping("/facets")
+    public ResponseEntity<DishFacetsDTO> findDishFacets(@ModelAttribute final DishFilterDTO filter, final WebRequest request) {
+        return conditionalGet(request, () -> dishService.findDishFacets(filter));
+    }
+
+    @Override
+    @GetMapping("/changes")
+    public ResponseEntity<DishChangesDTO> findDishChanges(@RequestParam(name = "since")
+                                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime since) {
+        return ResponseEntity.ok().body(dishService.findChangesSince(since));
+    }
+
+    @Override
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void streamDishEvents(@RequestHeader(name = "Last-Event-ID", required = false) final String lastEventId,
+                                 final HttpServletRequest request,
+                                 final HttpServletResponse response) throws IOException {
+        dishEvents.subscribe(request, response, lastEventId);
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN','KITCHEN')")
+    @Override
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportDishes() {
+        ObjectWriter writer = objectMapper.writerFor(DishDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                gen.setRootValueSeparator(null);
+                int[] written = {0};
+                dishService.exportAllDishes(dish -> {
+                    try {
+                        writer.writeValue(gen, dish);
+                        gen.writeRaw('\n');
+                        if (++written[0] % EXPORT_FLUSH_EVERY == 0)
+                            gen.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private byte[] serialize(final List<DishDTO> dishes, final DishFields fields) {
+        try {
+            return objectMapper.writer(fields.filterProvider()).writeValueAsBytes(dishes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Public reads are tagged with the catalog version, a matching If-None-Match skips the query entirely
+    private <T> ResponseEntity<T> conditionalGet(final WebRequest request, final Supplier<T> body) {
+        String etag = dishCatalog.etag();
+        if (request.checkNotModified(etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CATALOG_CACHE_CONTROL).build();
+        return ResponseEntity.ok().eTag(etag).cacheControl(CATALOG_CACHE_CONTROL).body(body.get());
     }
 
 }
\ No newline at end of file
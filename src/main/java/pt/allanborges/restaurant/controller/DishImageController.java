@@ -0,0 +1,91 @@
+package pt.allanborges.restaurant.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import pt.allanborges.restaurant.controller.apidocs.DishImageApiDocs;
+import pt.allanborges.restaurant.controller.handlers.exceptions.ResourceNotFoundException;
+import pt.allanborges.restaurant.model.dtos.DishImageDTO;
+import pt.allanborges.restaurant.service.DishService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/v1/dishes")
+public class DishImageController implements DishImageApiDocs {
+
+    // names are content hashes, a given URL always returns the same bytes
+    private static final CacheControl IMAGE_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    // Tomcat's sendfile contract: the connector writes the file with FileChannel.transferTo after the servlet returns
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final DishService dishService;
+
+
+    @PreAuthorize("hasAnyRole('ADMIN','KITCHEN')")
+    @Override
+    @PostMapping(value = "/{dishId}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<DishImageDTO> uploadDishImage(@PathVariable final Long dishId,
+                                                        @RequestPart("file") final MultipartFile file) throws IOException {
+        // the container has already spooled the part to disk, this reads it back as a stream
+        try (InputStream content = file.getInputStream()) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(dishService.storeDishImage(dishId, content, file.getContentType()));
+        }
+    }
+
+    @Override
+    @GetMapping("/images/{fileName:.+}")
+    public ResponseEntity<Resource> findDishImage(@PathVariable final String fileName,
+                                                  final HttpServletRequest request,
+                                                  final HttpServletResponse response) throws IOException {
+        Path file = dishService.findDishImage(fileName)
+                .orElseThrow(() -> new ResourceNotFoundException("Image not found: " + fileName));
+        String etag = "\"" + fileName + "\"";
+        MediaType contentType = MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+
+        if (new ServletWebRequest(request, response).checkNotModified(etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(IMAGE_CACHE_CONTROL).build();
+
+        // whole-file reads go out through sendfile; ranges (and connectors without sendfile) through Spring's ResourceRegion support
+        if (request.getHeader(HttpHeaders.RANGE) == null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            long length = Files.size(file);
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, IMAGE_CACHE_CONTROL.getHeaderValue());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .eTag(etag)
+                .cacheControl(IMAGE_CACHE_CONTROL)
+                .body(new FileSystemResource(file));
+    }
+
+}
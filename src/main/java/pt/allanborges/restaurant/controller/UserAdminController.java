@@ -32,4 +32,9 @@ public class UserAdminController implements UserAdminApiDocs {
         return ResponseEntity.ok(userService.approveUser(id, req, principal.getName()));
     }
 
+    @PostMapping("/{id}/revoke-tokens")
+    public ResponseEntity<UserResponse> revokeTokens(@PathVariable Long id) {
+        return ResponseEntity.ok(userService.revokeTokens(id));
+    }
+
 }
\ No newline at end of file
@@ -33,6 +33,12 @@ public interface AuthApiDocs {
             @ApiResponse(responseCode = "403", description = "Account disabled or inactive",
                     content = @Content(mediaType = APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "429", description = "Too many attempts from this client, or for this username from this client",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "503", description = "Password hashing saturated, retry later",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(mediaType = APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = StandardError.class)))
@@ -47,7 +53,13 @@ public interface AuthApiDocs {
             @ApiResponse(responseCode = "400", description = "Bad request",
                     content = @Content(mediaType = APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = StandardError.class))),
-            @ApiResponse(responseCode = "409", description = "Username already exists",
+            @ApiResponse(responseCode = "409", description = "Username, e-mail or NIF already exists",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "429", description = "Too many attempts from this client, or for this username from this client",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "503", description = "Password hashing saturated, retry later",
                     content = @Content(mediaType = APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = StandardError.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
@@ -70,6 +82,12 @@ public interface AuthApiDocs {
             @ApiResponse(responseCode = "409", description = "Username already exists",
                     content = @Content(mediaType = APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "429", description = "Too many attempts from this client, or for this username from this client",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "503", description = "Password hashing saturated, retry later",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(mediaType = APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = StandardError.class)))
@@ -80,4 +98,18 @@ public interface AuthApiDocs {
             String providedSecret
     );
 
+    @Operation(summary = "Logout", description = "Revoke the bearer token of the request until it expires")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Token revoked"),
+            @ApiResponse(responseCode = "403", description = "Missing, invalid or already revoked token",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)))
+    })
+    ResponseEntity<Void> logout(
+            @Parameter(description = "Authorization header (Bearer token)", hidden = true) String authorization
+    );
+
 }
\ No newline at end of file
@@ -2,29 +2,47 @@ package pt.allanborges.restaurant.controller.apidocs;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pt.allanborges.restaurant.controller.handlers.exceptions.ResourceNotFoundException;
 import pt.allanborges.restaurant.controller.handlers.exceptions.StandardError;
+import pt.allanborges.restaurant.model.dtos.CursorPageDTO;
+import pt.allanborges.restaurant.model.dtos.DishBulkDTO;
+import pt.allanborges.restaurant.model.dtos.DishChangesDTO;
 import pt.allanborges.restaurant.model.dtos.DishDTO;
+import pt.allanborges.restaurant.model.dtos.DishFacetsDTO;
 import pt.allanborges.restaurant.model.dtos.DishFilterDTO;
+import pt.allanborges.restaurant.model.dtos.StockReservationDTO;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
 
 @Tag(name = "Dish Controller", description = "Responsible for manage the Dishes")
 public interface DishApiDocs {
 
+    // ETags follow the catalog version, which only takes stock movements in once per app.stock.publish-interval
+    String STOCK_LAG = ". Stock movements reach the ETag at most once per app.stock.publish-interval (1s by default), "
+            + "so a 304 may confirm stock that changed within that interval";
+
     @Operation(summary = "Create new Dish", description = "Create new Dish in order to client populate the list")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Dish created",
@@ -56,13 +74,15 @@ public interface DishApiDocs {
     })
     ResponseEntity<DishDTO> createDish(@RequestBody final DishDTO dishDTO);
 
-    @Operation(summary = "Find all dishes", description = "Find all dishes in order to client populate the list")
+    @Operation(summary = "Find all dishes",
+            description = "Find all dishes in order to client populate the list. Sent gzip-encoded when the client accepts it.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Dish list returned",
                     content = @Content(
                             mediaType = APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = DishDTO.class)
+                            array = @ArraySchema(schema = @Schema(implementation = DishDTO.class))
                     )),
+            @ApiResponse(responseCode = "304", description = "Dish list unchanged since the given ETag" + STOCK_LAG),
             @ApiResponse(responseCode = "400", description = "Bad request",
                     content = @Content(
                             mediaType = APPLICATION_JSON_VALUE,
@@ -85,7 +105,9 @@ public interface DishApiDocs {
                             schema = @Schema(implementation = StandardError.class)
                     ))
     })
-    ResponseEntity<List<DishDTO>> findAllDishes();
+    ResponseEntity<byte[]> findAllDishes(@Parameter(description = "Comma-separated dish fields to return, e.g. name,price,code. The id is always included",
+                                                    example = "name,price,code") final String fields,
+                                         @Parameter(hidden = true) final WebRequest request);
 
     @Operation(summary = "Find dish by id", description = "Find dish by id")
     @ApiResponses(value = {
@@ -94,6 +116,7 @@ public interface DishApiDocs {
                             mediaType = APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = DishDTO.class)
                     )),
+            @ApiResponse(responseCode = "304", description = "Dish unchanged since the given ETag" + STOCK_LAG),
             @ApiResponse(responseCode = "400", description = "Bad request",
                     content = @Content(
                             mediaType = APPLICATION_JSON_VALUE,
@@ -116,7 +139,8 @@ public interface DishApiDocs {
                             schema = @Schema(implementation = StandardError.class)
                     ))
     })
-    ResponseEntity<DishDTO> findDishById(@Parameter(description = "dishId", required = true, example = "33") final Long id);
+    ResponseEntity<DishDTO> findDishById(@Parameter(description = "dishId", required = true, example = "33") final Long id,
+                                         @Parameter(hidden = true) final WebRequest request);
 
     @Operation(summary = "Update Dish", description = "Update Dish by id")
     @ApiResponses(value = {
@@ -152,6 +176,113 @@ public interface DishApiDocs {
             @PathVariable(name = "dishId") final Long dishId,
             @RequestBody final DishDTO dishDTO);
 
+    @Operation(summary = "Bulk create/update Dishes",
+            description = "Creates dishes without id and updates dishes with id in a single transaction. Codes are resolved (or created) in one lookup.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Dishes saved",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = DishDTO.class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(
+                    responseCode = "403", description = "Forbidden",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "404", description = "A dish id was not found",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    ))
+    })
+    ResponseEntity<List<DishDTO>> upsertDishes(@RequestBody final DishBulkDTO dishBulkDTO);
+
+    @Operation(summary = "Reserve Dish stock",
+            description = "Atomically takes the quantity from the dish stock. Fails with 409 instead of overselling.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stock reserved",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StockReservationDTO.class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(
+                    responseCode = "403", description = "Forbidden",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "404", description = "Dish not found",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "409", description = "Not enough stock",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    ))
+    })
+    ResponseEntity<StockReservationDTO> reserveStock(
+            @Parameter(description = "Dish id", required = true, example = "123")
+            @PathVariable(name = "dishId") final Long dishId,
+            @RequestBody final StockReservationDTO reservation);
+
+    @Operation(summary = "Release Dish stock", description = "Gives a previously reserved quantity back to the stock of an active dish. "
+            + "Kitchen and admins only, since the quantity is not checked against earlier reservations")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stock released",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StockReservationDTO.class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(
+                    responseCode = "403", description = "Forbidden",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "404", description = "Dish not found",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    ))
+    })
+    ResponseEntity<StockReservationDTO> releaseStock(
+            @Parameter(description = "Dish id", required = true, example = "123")
+            @PathVariable(name = "dishId") final Long dishId,
+            @RequestBody final StockReservationDTO release);
+
     @Operation(summary = "Dishes list for front office", description = "Find all dishes for front office")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "FO dishes found",
@@ -159,6 +290,7 @@ public interface DishApiDocs {
                             mediaType = APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = DishDTO.class)
                     )),
+            @ApiResponse(responseCode = "304", description = "FO dishes unchanged since the given ETag" + STOCK_LAG),
             @ApiResponse(responseCode = "400", description = "Bad request",
                     content = @Content(
                             mediaType = APPLICATION_JSON_VALUE,
@@ -186,7 +318,133 @@ public interface DishApiDocs {
             @Parameter(description = "Page size", example = "10", required = true) final Integer size,
             @Parameter(description = "Page sort", example = "DESC", required = true) final String sort,
             @Parameter(description = "Order by fields", example = "id") final String orderBy,
-            @ModelAttribute @ParameterObject final DishFilterDTO filter
+            @ModelAttribute @ParameterObject final DishFilterDTO filter,
+            @Parameter(hidden = true) final WebRequest request
+    );
+
+    @Operation(summary = "Dishes list for front office by cursor",
+            description = "Keyset pagination over the same filters, selected by sending the cursor parameter. " +
+                    "Send an empty cursor for the first page and the returned nextCursor for the following ones.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "FO dishes found",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = CursorPageDTO.class)
+                    )),
+            @ApiResponse(responseCode = "304", description = "FO dishes unchanged since the given ETag" + STOCK_LAG),
+            @ApiResponse(responseCode = "400", description = "Bad request or invalid cursor",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    ))
+    })
+    ResponseEntity<CursorPageDTO<DishDTO>> findAllDishesWithCursor(
+            @Parameter(description = "Continuation token, empty for the first page", example = "", required = true) final String cursor,
+            @Parameter(description = "Page size", example = "10") final Integer size,
+            @Parameter(description = "Page sort, ignored when continuing a cursor", example = "DESC") final String sort,
+            @Parameter(description = "Order by id, name, price, stock or code, ignored when continuing a cursor", example = "id") final String orderBy,
+            @ModelAttribute @ParameterObject final DishFilterDTO filter,
+            @Parameter(hidden = true) final WebRequest request
     );
 
+    @Operation(summary = "Dish facets for front office",
+            description = "Counts per dish code, a price histogram and stock availability for the same filters as the paged list")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Facets computed",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = DishFacetsDTO.class)
+                    )),
+            @ApiResponse(responseCode = "304", description = "Facets unchanged since the given ETag" + STOCK_LAG),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    ))
+    })
+    ResponseEntity<DishFacetsDTO> findDishFacets(
+            @ModelAttribute @ParameterObject final DishFilterDTO filter,
+            @Parameter(hidden = true) final WebRequest request
+    );
+
+    @Operation(summary = "Dish changes since a watermark",
+            description = "Dishes and dish codes created, updated or inactivated after the given instant. "
+                    + "The watermark trails the database clock by about 90 seconds, so writes still committing are not skipped. "
+                    + "Pass the returned watermark as since on the next call; inactivated dishes carry their inactivatedDate.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changes returned",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = DishChangesDTO.class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Missing or invalid since",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    ))
+    })
+    ResponseEntity<DishChangesDTO> findDishChanges(
+            @Parameter(description = "Watermark of the previous call (ISO date-time)", required = true,
+                    example = "2025-01-31T12:00:00.000000") final LocalDateTime since);
+
+    @Operation(summary = "Stream dish changes",
+            description = "Server-sent events for committed changes: dish-created, dish-updated and stock-changed with {\"dishId\":..}, "
+                    + "catalog-changed for bulk and code changes, and reset when the client fell behind and has to reload the menu. "
+                    + "Reconnect with Last-Event-ID to resume.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened",
+                    content = @Content(mediaType = TEXT_EVENT_STREAM_VALUE)),
+            @ApiResponse(responseCode = "403", description = "Not signed in",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "503", description = "Too many open streams",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    ))
+    })
+    void streamDishEvents(
+            @Parameter(description = "Id of the last event received before reconnecting") final String lastEventId,
+            @Parameter(hidden = true) final HttpServletRequest request,
+            @Parameter(hidden = true) final HttpServletResponse response) throws IOException;
+
+    @Operation(summary = "Export all dishes",
+            description = "Stream every dish, including inactive ones, as newline-delimited JSON for POS synchronization")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Dish export streamed",
+                    content = @Content(
+                            mediaType = APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = DishDTO.class)
+                    )),
+            @ApiResponse(
+                    responseCode = "403", description = "Forbidden",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    ))
+    })
+    ResponseEntity<StreamingResponseBody> exportDishes();
+
 }
\ No newline at end of file
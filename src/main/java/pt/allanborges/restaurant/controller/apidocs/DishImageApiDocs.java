@@ -0,0 +1,85 @@
+package pt.allanborges.restaurant.controller.apidocs;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.multipart.MultipartFile;
+import pt.allanborges.restaurant.controller.handlers.exceptions.StandardError;
+import pt.allanborges.restaurant.model.dtos.DishImageDTO;
+
+import java.io.IOException;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@Tag(name = "Dish Image Controller", description = "Responsible for storing and serving the Dish images")
+public interface DishImageApiDocs {
+
+    @Operation(summary = "Upload Dish image",
+            description = "Stores a JPEG, PNG or WebP image for the dish and points its imageUrl at it. A thumbnail is rendered in the background.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Image stored",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = DishImageDTO.class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Empty file, unsupported image type, content not matching the type or too many pixels",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(
+                    responseCode = "403", description = "Forbidden",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "404", description = "Dish not found",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "413", description = "Image larger than the upload limit",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    )),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    ))
+    })
+    ResponseEntity<DishImageDTO> uploadDishImage(
+            @Parameter(description = "Dish id", required = true, example = "123")
+            @PathVariable(name = "dishId") final Long dishId,
+            @Parameter(description = "Image file", required = true) final MultipartFile file) throws IOException;
+
+    @Operation(summary = "Get Dish image",
+            description = "Serves a stored image or thumbnail. Names are content hashes, so responses are cacheable forever; Range requests are supported.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Image returned", content = @Content(mediaType = "image/*")),
+            @ApiResponse(responseCode = "206", description = "Requested byte range returned", content = @Content(mediaType = "image/*")),
+            @ApiResponse(responseCode = "304", description = "Image unchanged since the given ETag"),
+            @ApiResponse(responseCode = "404", description = "Image not found (thumbnails may still be rendering)",
+                    content = @Content(
+                            mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)
+                    ))
+    })
+    ResponseEntity<Resource> findDishImage(
+            @Parameter(description = "Image file name", required = true,
+                    example = "3f2a...c9.jpg")
+            @PathVariable(name = "fileName") final String fileName,
+            @Parameter(hidden = true) final HttpServletRequest request,
+            @Parameter(hidden = true) final HttpServletResponse response) throws IOException;
+
+}
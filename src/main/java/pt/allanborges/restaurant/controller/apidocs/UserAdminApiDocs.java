@@ -59,4 +59,23 @@ public interface UserAdminApiDocs {
             ApproveUserRequest req,
             @Parameter(hidden = true) java.security.Principal principal
     );
+
+    @Operation(summary = "Revoke user tokens", description = "Reject every token issued to the user so far; the user has to log in again")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tokens revoked",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = UserResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404", description = "User not found",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StandardError.class)))
+    })
+    ResponseEntity<UserResponse> revokeTokens(
+            @Parameter(description = "User id", required = true, example = "42") Long id
+    );
 }
@@ -0,0 +1,35 @@
+package pt.allanborges.restaurant.controller.handlers;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+import pt.allanborges.restaurant.controller.DishController;
+import pt.allanborges.restaurant.model.dtos.DishFields;
+
+/**
+ * Applies the {@code fields=} sparse fieldset of dish listings to the JSON: properties outside it are not
+ * written at all, not even as nulls. The service has already left their columns out of the SELECT.
+ */
+@ControllerAdvice(assignableTypes = DishController.class)
+public class DishFieldsResponseAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    private static final String FIELDS_PARAM = "fields";
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer,
+                                           MediaType contentType,
+                                           MethodParameter returnType,
+                                           ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) return;
+        String fields = servletRequest.getServletRequest().getParameter(FIELDS_PARAM);
+        if (fields != null && !fields.isBlank())
+            bodyContainer.setFilters(DishFields.parse(fields).filterProvider());
+    }
+
+}
@@ -3,6 +3,7 @@ package pt.allanborges.restaurant.controller.handlers;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -11,8 +12,11 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import pt.allanborges.restaurant.controller.handlers.exceptions.*;
 
 import java.util.ArrayList;
@@ -65,6 +69,14 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler({
+            MissingServletRequestParameterException.class,
+            MethodArgumentTypeMismatchException.class
+    })
+    ResponseEntity<StandardError> handleBadRequestParameter(final Exception ex, final HttpServletRequest request) {
+        return ResponseEntity.status(BAD_REQUEST).body(std(BAD_REQUEST, ex.getMessage(), request));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     ResponseEntity<StandardError> handleMethodArgumentNotValidException(final MethodArgumentNotValidException ex, final HttpServletRequest request) {
         var error = ValidationEx.builder()
@@ -117,6 +129,11 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(std(HttpStatus.FORBIDDEN, msg, request));
     }
 
+    @ExceptionHandler(DuplicateUserException.class)
+    ResponseEntity<StandardError> handleDuplicateUser(final DuplicateUserException ex, final HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(std(HttpStatus.CONFLICT, ex.getMessage(), request));
+    }
+
     @ExceptionHandler(UsernameAlreadyExistsException.class)
     ResponseEntity<StandardError> handleUsernameAlreadyExists(
             UsernameAlreadyExistsException ex, HttpServletRequest request) {
@@ -132,6 +149,28 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(InsufficientStockException.class)
+    ResponseEntity<StandardError> handleInsufficientStock(final InsufficientStockException ex, final HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(std(HttpStatus.CONFLICT, ex.getMessage(), request));
+    }
+
+    @ExceptionHandler(SubscriberLimitException.class)
+    ResponseEntity<StandardError> handleSubscriberLimit(final SubscriberLimitException ex, final HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(std(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request));
+    }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    ResponseEntity<StandardError> handlePasswordHashingBusy(final PasswordHashingBusyException ex, final HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(std(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request));
+    }
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    ResponseEntity<StandardError> handleMaxUploadSize(final MaxUploadSizeExceededException ex, final HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(std(HttpStatus.PAYLOAD_TOO_LARGE, "Uploaded file is too large", request));
+    }
+
     @ExceptionHandler(AdminApprovalNotAllowedException.class)
     ResponseEntity<StandardError> handleAdminApprovalNotAllowed(
             final AdminApprovalNotAllowedException ex,
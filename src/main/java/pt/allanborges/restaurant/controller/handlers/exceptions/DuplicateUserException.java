@@ -0,0 +1,9 @@
+package pt.allanborges.restaurant.controller.handlers.exceptions;
+
+public class DuplicateUserException extends RuntimeException {
+
+    public DuplicateUserException(String message) {
+        super(message);
+    }
+
+}
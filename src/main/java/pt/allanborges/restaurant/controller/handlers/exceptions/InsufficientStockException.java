@@ -0,0 +1,9 @@
+package pt.allanborges.restaurant.controller.handlers.exceptions;
+
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+
+}
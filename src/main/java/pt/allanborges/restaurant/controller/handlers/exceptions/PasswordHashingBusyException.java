@@ -0,0 +1,9 @@
+package pt.allanborges.restaurant.controller.handlers.exceptions;
+
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+
+}
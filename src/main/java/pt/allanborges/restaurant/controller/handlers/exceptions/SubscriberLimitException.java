@@ -0,0 +1,9 @@
+package pt.allanborges.restaurant.controller.handlers.exceptions;
+
+public class SubscriberLimitException extends RuntimeException {
+
+    public SubscriberLimitException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,21 @@
+package pt.allanborges.restaurant.model.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    private List<T> content;
+    private Integer size;
+    private String nextCursor;
+    private boolean hasNext;
+
+}
@@ -0,0 +1,23 @@
+package pt.allanborges.restaurant.model.dtos;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishBulkDTO {
+
+    @NotEmpty(message = "At least one dish is required")
+    @Size(max = 1000, message = "At most 1000 dishes per request")
+    private List<@Valid DishDTO> dishes;
+
+}
@@ -0,0 +1,27 @@
+package pt.allanborges.restaurant.model.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishChangesDTO {
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSSSS")
+    private LocalDateTime since;
+    // pass back as "since" on the next call
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSSSS")
+    private LocalDateTime watermark;
+    // created, updated or inactivated dishes; inactivated ones carry inactivatedDate and should be dropped
+    private List<DishDTO> dishes;
+    private List<DishCodeDTO> codes;
+
+}
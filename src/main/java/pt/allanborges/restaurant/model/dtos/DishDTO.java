@@ -1,5 +1,6 @@
 package pt.allanborges.restaurant.model.dtos;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
@@ -11,10 +12,11 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-@Builder
+@Builder(toBuilder = true)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonFilter(DishFields.FILTER)
 public class DishDTO {
 
     private Long id;
@@ -34,7 +36,7 @@ public class DishDTO {
     @NotNull(message = "Dish code is required")
     @Valid
     private DishCodeDTO code;
-    @NotBlank(message = "Dish image url is required")
+    // filled in by POST /v1/dishes/{dishId}/image, may also point to an external image
     @Size(max = 400, message = "Image URL max 400 characters")
     private String imageUrl;
     private String createdBy;
@@ -0,0 +1,43 @@
+package pt.allanborges.restaurant.model.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishFacetsDTO {
+
+    private long total;
+    private List<CodeCount> codes;
+    private List<PriceBucket> prices;
+    private long inStock;
+    private long outOfStock;
+
+    @Builder
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CodeCount {
+        private String code;
+        private long count;
+    }
+
+    /** Dishes priced in [from, to); from is null for the first bucket and to is null for the last one. */
+    @Builder
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceBucket {
+        private BigDecimal from;
+        private BigDecimal to;
+        private long count;
+    }
+
+}
@@ -0,0 +1,65 @@
+package pt.allanborges.restaurant.model.dtos;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sparse fieldset of a dish listing, parsed from {@code fields=name,price,code}. The id is always part of it.
+ * The same set narrows the SELECT list and, through the {@link #FILTER} Jackson filter on {@link DishDTO},
+ * the JSON written back.
+ */
+public record DishFields(Set<String> names) {
+
+    public static final String FILTER = "dishFields";
+    public static final Set<String> AVAILABLE = Set.of(
+            "id", "name", "description", "price", "stock", "code", "imageUrl",
+            "createdBy", "createdDate", "updatedBy", "updatedDate", "inactivatedBy", "inactivatedDate");
+    public static final DishFields ALL = new DishFields(AVAILABLE);
+
+    public DishFields {
+        names = Set.copyOf(names);
+    }
+
+    /** @throws IllegalArgumentException for names that are not {@link DishDTO} properties */
+    public static DishFields parse(String fields) {
+        if (fields == null || fields.isBlank()) return ALL;
+        Set<String> names = new LinkedHashSet<>();
+        names.add("id");
+        for (String raw : fields.split(",")) {
+            String name = raw.trim();
+            if (name.isEmpty()) continue;
+            if (!AVAILABLE.contains(name))
+                throw new IllegalArgumentException("Unknown dish field: " + name + ". Allowed: " + AVAILABLE);
+            names.add(name);
+        }
+        return new DishFields(names);
+    }
+
+    public boolean all() {
+        return names.size() == AVAILABLE.size();
+    }
+
+    public boolean includes(String name) {
+        return names.contains(name);
+    }
+
+    /** This set plus one more field, e.g. the cursor key the service needs regardless of what was asked for. */
+    public DishFields with(String name) {
+        if (includes(name) || !AVAILABLE.contains(name)) return this;
+        Set<String> more = new HashSet<>(names);
+        more.add(name);
+        return new DishFields(more);
+    }
+
+    public FilterProvider filterProvider() {
+        return new SimpleFilterProvider().addFilter(FILTER, all()
+                ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(names));
+    }
+
+}
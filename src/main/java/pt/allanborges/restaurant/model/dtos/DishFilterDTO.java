@@ -7,6 +7,8 @@ import java.util.List;
 
 @Data
 public class DishFilterDTO {
+    @Parameter(description = "Full-text search over dish name and description, results ranked by relevance unless orderBy is given")
+    private String q;
     @Parameter(description = "Dish ID")
     private String id;
     @Parameter(description = "Dish name")
@@ -17,10 +19,12 @@ public class DishFilterDTO {
     private String price;
     @Parameter(description = "Dish stock")
     private String stock;
-    @Parameter(description = "Dish code(s). Repeat param or comma-separate, e.g. code=DESSERT&code=MEAT or code=DESSERT,MEAT")
+    @Parameter(description = "Dish code(s). Repeat param or comma-separate, e.g. code=DESSERT&code=MEAT or code=DESSERT,MEAT. At most 1000 distinct codes")
     private List<String> code;
     @Parameter(description = "Dish created date from")
     private String createdDateFrom;
     @Parameter(description = "Dish created date to")
     private String createdDateTo;
+    @Parameter(description = "Comma-separated dish fields to return, e.g. fields=name,price,code. The id is always included")
+    private String fields;
 }
\ No newline at end of file
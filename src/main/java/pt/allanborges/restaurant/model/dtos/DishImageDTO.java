@@ -0,0 +1,20 @@
+package pt.allanborges.restaurant.model.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishImageDTO {
+
+    private Long dishId;
+    private String imageUrl;
+    // rendered in the background, may answer 404 for a moment after the upload
+    private String thumbnailUrl;
+    private Long size;
+
+}
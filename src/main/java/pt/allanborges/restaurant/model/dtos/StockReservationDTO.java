@@ -0,0 +1,21 @@
+package pt.allanborges.restaurant.model.dtos;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDTO {
+
+    private Long dishId;
+    @NotNull(message = "Quantity is required")
+    @Positive(message = "Quantity must be > 0")
+    private Integer quantity;
+
+}
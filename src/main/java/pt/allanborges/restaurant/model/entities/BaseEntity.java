@@ -16,7 +16,7 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
-import static jakarta.persistence.GenerationType.IDENTITY;
+import static jakarta.persistence.GenerationType.SEQUENCE;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @AllArgsConstructor
@@ -30,7 +30,8 @@ public class BaseEntity implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    // pooled <entity>_SEQ sequences (allocation size 50); IDENTITY would disable JDBC insert batching
+    @GeneratedValue(strategy = SEQUENCE)
     @Column(name = "ID")
     private Long id;
 
@@ -4,10 +4,13 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import pt.allanborges.restaurant.model.enums.Role;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -19,6 +22,8 @@ import java.util.Set;
 @AllArgsConstructor
 @Builder
 @EqualsAndHashCode(callSuper = true)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Entity
 @Table(name = "USERS")
 public class UserAccount extends BaseEntity implements Serializable {
@@ -47,6 +52,7 @@ public class UserAccount extends BaseEntity implements Serializable {
     private String nif;
 
     @Builder.Default
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "USER_ROLES", joinColumns = @JoinColumn(name = "USER_ID"))
     @Enumerated(EnumType.STRING)
@@ -57,6 +63,10 @@ public class UserAccount extends BaseEntity implements Serializable {
     @Column(name = "ENABLED", nullable = false)
     private boolean enabled = false;
 
+    // tokens issued before this are rejected by the auth filter
+    @Column(name = "TOKENS_VALID_AFTER")
+    private LocalDateTime tokensValidAfter;
+
     @Builder.Default
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Address> addresses = new ArrayList<>();
@@ -11,6 +11,7 @@ import java.util.List;
 public interface UserAccountMapper {
 
     @Mapping(target = "passwordHash", ignore = true)
+    @Mapping(target = "tokensValidAfter", ignore = true)
     UserAccount toEntity(UserResponse userResponse);
     UserResponse toDTO(UserAccount userAccount);
     List<UserResponse> toDTOList(List<UserAccount> userAccountList);
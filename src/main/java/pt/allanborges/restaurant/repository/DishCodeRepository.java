@@ -1,14 +1,28 @@
 package pt.allanborges.restaurant.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import pt.allanborges.restaurant.model.entities.DishCode;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DishCodeRepository extends JpaRepository<DishCode, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<DishCode> findByCodeIgnoreCase(final String code);
     List<DishCode> findByCodeInIgnoreCase(final List<String> codes);
+
+    @Query("""
+            select c from DishCode c
+            where (c.updatedDate > :since and c.updatedDate <= :until)
+               or (c.inactivatedDate > :since and c.inactivatedDate <= :until)
+            order by c.id""")
+    List<DishCode> findChangedBetween(@Param("since") final LocalDateTime since, @Param("until") final LocalDateTime until);
 }
@@ -1,12 +1,35 @@
 package pt.allanborges.restaurant.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import pt.allanborges.restaurant.model.entities.Dish;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface DishRepository extends JpaRepository<Dish, Long> {
-    List<Dish> findByInactivatedDateIsNull();
+public interface DishRepository extends JpaRepository<Dish, Long>, DishStockStatements {
+    @EntityGraph(attributePaths = "code")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<Dish> findWithCodeById(final Long id);
+    @EntityGraph(attributePaths = "code")
+    List<Dish> findWithCodeByIdIn(final Collection<Long> ids);
+
+    boolean existsByIdAndInactivatedDateIsNull(final Long id);
+
+    @EntityGraph(attributePaths = "code")
+    @Query("""
+            select d from Dish d
+            where (d.updatedDate > :since and d.updatedDate <= :until)
+               or (d.inactivatedDate > :since and d.inactivatedDate <= :until)
+            order by d.id""")
+    List<Dish> findChangedBetween(@Param("since") final LocalDateTime since, @Param("until") final LocalDateTime until);
 }
\ No newline at end of file
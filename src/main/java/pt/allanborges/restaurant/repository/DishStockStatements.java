@@ -0,0 +1,17 @@
+package pt.allanborges.restaurant.repository;
+
+/**
+ * Conditional stock updates of a single dish row, see {@link DishStockStatementsImpl}.
+ */
+public interface DishStockStatements {
+
+    /** @return 1 when the stock was decremented, 0 when the dish is missing, inactive or short */
+    int decrementStock(final Long id, final int quantity);
+
+    /** @return 1 when the stock was incremented, 0 when the dish is missing; units claimed earlier always go back */
+    int incrementStock(final Long id, final int quantity);
+
+    /** @return 1 when the stock was incremented, 0 when the dish is missing or inactive */
+    int incrementActiveStock(final Long id, final int quantity);
+
+}
@@ -0,0 +1,74 @@
+package pt.allanborges.restaurant.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.allanborges.restaurant.model.entities.Dish;
+
+/**
+ * The stock statements run as native SQL tagged with a query space of their own. An HQL bulk update would
+ * make Hibernate purge the whole Dish second-level cache region on every sale; here only the one dish is
+ * evicted, right away and again after commit, so no reader re-caches the row as it was before the sale.
+ * <p>
+ * The row lock is held for this single statement only, and a short stock simply matches no row. The
+ * statements stamp UPDATED_DATE themselves (database clock, like the changes feed watermark).
+ */
+class DishStockStatementsImpl implements DishStockStatements {
+
+    // matches no entity table, so executing the statement invalidates no cache region by itself
+    private static final String STOCK_QUERY_SPACE = "DISHES_STOCK";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int decrementStock(final Long id, final int quantity) {
+        return update("""
+                UPDATE DISHES SET STOCK = STOCK - :quantity, UPDATED_DATE = LOCALTIMESTAMP
+                WHERE ID = :id AND STOCK >= :quantity AND INACTIVATED_DATE IS NULL""", id, quantity);
+    }
+
+    @Override
+    @Transactional
+    public int incrementStock(final Long id, final int quantity) {
+        return update("""
+                UPDATE DISHES SET STOCK = STOCK + :quantity, UPDATED_DATE = LOCALTIMESTAMP
+                WHERE ID = :id""", id, quantity);
+    }
+
+    @Override
+    @Transactional
+    public int incrementActiveStock(final Long id, final int quantity) {
+        return update("""
+                UPDATE DISHES SET STOCK = STOCK + :quantity, UPDATED_DATE = LOCALTIMESTAMP
+                WHERE ID = :id AND INACTIVATED_DATE IS NULL""", id, quantity);
+    }
+
+    private int update(String sql, Long id, int quantity) {
+        int changed = entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(STOCK_QUERY_SPACE)
+                .setParameter("id", id)
+                .setParameter("quantity", quantity)
+                .executeUpdate();
+        if (changed > 0) {
+            evict(id);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(id);
+                }
+            });
+        }
+        return changed;
+    }
+
+    private void evict(Long id) {
+        entityManager.getEntityManagerFactory().getCache().evict(Dish.class, id);
+    }
+
+}
@@ -1,12 +1,34 @@
 package pt.allanborges.restaurant.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import pt.allanborges.restaurant.model.entities.UserAccount;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserAccountRepository extends JpaRepository<UserAccount, Long> {
+    // user status cache misses (JwtAuthFilter) and loadUserByUsername
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<UserAccount> findByUsername(final String username);
-    Optional<UserAccount> findByEmail(final String email);
-    Optional<UserAccount> findByNif(final String nif);
-}
\ No newline at end of file
+
+    // registration: the accounts already holding any of the new account's unique values, in one round trip
+    @Query("""
+            select u.username as username, u.email as email, u.nif as nif
+            from UserAccount u
+            where u.username = :username or u.email = :email or u.nif = :nif
+            """)
+    List<UniqueFields> findHoldingAny(@Param("username") final String username,
+                                      @Param("email") final String email,
+                                      @Param("nif") final String nif);
+
+    interface UniqueFields {
+        String getUsername();
+        String getEmail();
+        String getNif();
+    }
+}
@@ -0,0 +1,207 @@
+package pt.allanborges.restaurant.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import pt.allanborges.restaurant.controller.handlers.exceptions.StandardError;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit of the open authentication endpoints, which each cost a BCrypt hash. Every POST takes a token from
+ * its client IP's bucket and then from the bucket of the username in its body, as sent from that IP; an empty
+ * bucket answers {@code 429} with {@code Retry-After} before any lookup or hashing happens.
+ * <p>
+ * The client IP is {@link HttpServletRequest#getRemoteAddr()}; behind a proxy set
+ * {@code server.forward-headers-strategy} so that it is the caller's and not the proxy's.
+ */
+@Log4j2
+@Component
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> LIMITED_PATHS = Set.of("/auth/login", "/auth/register", "/auth/register-admin");
+    // auth bodies are a few hundred bytes; larger ones are passed on without a username key
+    private static final int MAX_PARSED_BODY = 16 * 1024;
+
+    private final TokenBucketLimiter byIp;
+    private final TokenBucketLimiter byUsername;
+    private final ObjectMapper objectMapper;
+
+    public AuthRateLimitFilter(@Value("${app.security.rate-limit.ip.capacity}") int ipCapacity,
+                               @Value("${app.security.rate-limit.ip.refill-interval}") Duration ipRefill,
+                               @Value("${app.security.rate-limit.username.capacity}") int usernameCapacity,
+                               @Value("${app.security.rate-limit.username.refill-interval}") Duration usernameRefill,
+                               @Value("${app.security.rate-limit.stripes}") int stripes,
+                               @Value("${app.security.rate-limit.max-keys}") int maxKeys,
+                               ObjectMapper objectMapper) {
+        this.byIp = new TokenBucketLimiter(ipCapacity, ipRefill, stripes, maxKeys);
+        this.byUsername = new TokenBucketLimiter(usernameCapacity, usernameRefill, stripes, maxKeys);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !LIMITED_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        long wait = byIp.tryAcquire(request.getRemoteAddr());
+        if (wait > 0) {
+            reject(request, response, wait);
+            return;
+        }
+
+        byte[] head = request.getInputStream().readNBytes(MAX_PARSED_BODY + 1);
+        String username = head.length <= MAX_PARSED_BODY ? username(head) : null;
+        if (username != null) {
+            // keyed by client too: a stranger spending a username's tokens must not lock its owner out
+            wait = byUsername.tryAcquire(username + '|' + request.getRemoteAddr());
+            if (wait > 0) {
+                reject(request, response, wait);
+                return;
+            }
+        }
+        chain.doFilter(new ReplayedBodyRequest(request, head), response);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.rate-limit.eviction-interval}")
+    public void evictIdle() {
+        byIp.evictIdle();
+        byUsername.evictIdle();
+        log.debug("Auth rate limit buckets after eviction: {} ip, {} username per ip", byIp.size(), byUsername.size());
+    }
+
+    /* ---------- helpers ---------- */
+
+    private String username(byte[] body) {
+        try {
+            String username = objectMapper.readTree(body).path("username").asText(null);
+            return username == null || username.isBlank() ? null : username.trim().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            // malformed bodies are rejected by the controller; only the IP limit applies to them
+            return null;
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) throws IOException {
+        HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), StandardError.builder()
+                .timestamp(LocalDateTime.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message("Too many authentication attempts, retry later")
+                .path(request.getRequestURI())
+                .build());
+    }
+
+    // The body prefix read for the username, followed by whatever of the body was left unread
+    private static final class ReplayedBodyRequest extends HttpServletRequestWrapper {
+
+        private final ServletInputStream body;
+
+        private ReplayedBodyRequest(HttpServletRequest request, byte[] head) throws IOException {
+            super(request);
+            this.body = new ReplayedInputStream(new ByteArrayInputStream(head), request.getInputStream());
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+            return new BufferedReader(new InputStreamReader(body, charset));
+        }
+    }
+
+    // Serves the prefix from memory, then hands every call, non-blocking ones included, to the container's stream
+    private static final class ReplayedInputStream extends ServletInputStream {
+
+        private final ByteArrayInputStream head;
+        private final ServletInputStream rest;
+
+        private ReplayedInputStream(ByteArrayInputStream head, ServletInputStream rest) {
+            this.head = head;
+            this.rest = rest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return head.available() > 0 ? head.read() : rest.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            return head.available() > 0 ? head.read(buffer, offset, length) : rest.read(buffer, offset, length);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return head.available() == 0 && rest.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return head.available() > 0 || rest.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            // the container only calls back for its own stream, which may already be drained: the prefix is
+            // offered first, before the listener is told that all data was read
+            rest.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    listener.onDataAvailable();
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    if (head.available() > 0) listener.onDataAvailable();
+                    listener.onAllDataRead();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    listener.onError(t);
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package pt.allanborges.restaurant.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import pt.allanborges.restaurant.controller.handlers.exceptions.PasswordHashingBusyException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt on a fixed pool of {@code app.security.password.workers} threads, so a burst of logins or
+ * registrations cannot take every request thread's CPU. Callers wait for their turn; once
+ * {@code app.security.password.queue} hashes are already waiting, new ones fail at once with
+ * {@link PasswordHashingBusyException} (503).
+ * <p>
+ * Hashes made with another cost than {@code app.security.password.cost} report {@link #upgradeEncoding},
+ * which makes the authentication provider rehash the password on the next successful login.
+ */
+@Log4j2
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final int cost;
+    private final ThreadPoolExecutor hashers;
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(@Value("${app.security.password.cost}") int cost,
+                                  @Value("${app.security.password.workers}") int workers,
+                                  @Value("${app.security.password.queue}") int queue,
+                                  MeterRegistry meters) {
+        this.bcrypt = new BCryptPasswordEncoder(cost);
+        this.cost = cost;
+        AtomicInteger threads = new AtomicInteger();
+        this.hashers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue),
+                task -> {
+                    Thread thread = new Thread(task, "password-hash-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("auth.password.hash.queue", hashers, executor -> executor.getQueue().size())
+                .description("Password hashes waiting for a worker")
+                .register(meters);
+        Gauge.builder("auth.password.hash.active", hashers, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes being computed")
+                .register(meters);
+        this.encodeTimer = Timer.builder("auth.password.hash").tag("operation", "encode")
+                .description("Time spent computing password hashes, excluding the wait for a worker")
+                .register(meters);
+        this.matchTimer = Timer.builder("auth.password.hash").tag("operation", "matches")
+                .description("Time spent computing password hashes, excluding the wait for a worker")
+                .register(meters);
+        this.rejected = Counter.builder("auth.password.hash.rejected")
+                .description("Password hashes refused because the queue was full")
+                .register(meters);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> encodeTimer.record(() -> bcrypt.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> matchTimer.record(() -> bcrypt.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) return false;
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != cost;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashers.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> hash) {
+        Future<T> result;
+        try {
+            result = hashers.submit(hash);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("Too many authentication requests, retry later");
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+}
@@ -11,7 +11,6 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import pt.allanborges.restaurant.repository.UserAccountRepository;
 
 import java.io.IOException;
 import java.util.stream.Collectors;
@@ -21,28 +20,29 @@ import java.util.stream.Collectors;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwt;
-    private final UserAccountRepository users;
+    private final UserStatusCache userStatuses;
+    private final RevokedTokens revokedTokens;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
 
-        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
-        if (header != null && header.startsWith("Bearer ")) {
-            String token = header.substring(7);
-            if (jwt.isValid(token)) {
-                String username = jwt.getUsername(token);
-                var user = users.findByUsername(username).orElse(null);
-                if (user != null && user.isEnabled() && user.getInactivatedDate() == null) {
-                    var authorities = jwt.getRoles(token).stream()
+        String token = JwtService.bearerToken(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (token != null) {
+            jwt.verify(token).ifPresent(principal -> {
+                if (revokedTokens.isRevoked(principal.tokenId(), principal.expiresAt())) return;
+                // status and roles as they are now, not as they were when the token was issued
+                var user = userStatuses.get(principal.username());
+                if (user.active() && user.accepts(principal.issuedAt())) {
+                    var authorities = user.roles().stream()
                             .map(r -> new SimpleGrantedAuthority("ROLE_" + r))
                             .collect(Collectors.toSet());
-                    var auth = new UsernamePasswordAuthenticationToken(username, null, authorities);
+                    var auth = new UsernamePasswordAuthenticationToken(principal.username(), null, authorities);
                     SecurityContextHolder.getContext().setAuthentication(auth);
                 }
-            }
+            });
         }
         chain.doFilter(request, response);
     }
 
-}
\ No newline at end of file
+}
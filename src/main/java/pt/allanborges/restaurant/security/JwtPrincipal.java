@@ -0,0 +1,20 @@
+package pt.allanborges.restaurant.security;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Claims of a token whose signature has been verified. {@code tokenId} is the {@code jti}, absent on tokens
+ * issued before ids were added.
+ */
+public record JwtPrincipal(String tokenId, String username, Set<String> roles, Instant issuedAt, Instant expiresAt) {
+
+    public JwtPrincipal {
+        roles = Set.copyOf(roles);
+    }
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+
+}
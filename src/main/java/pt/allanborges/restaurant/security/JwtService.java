@@ -1,5 +1,11 @@
 package pt.allanborges.restaurant.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -8,34 +14,59 @@ import org.springframework.stereotype.Service;
 import pt.allanborges.restaurant.model.enums.Role;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
+/**
+ * Issues and verifies the API's HS256 tokens.
+ * <p>
+ * A token is parsed and its signature checked once; the resulting {@link JwtPrincipal} is kept in a
+ * size-bounded cache keyed by the SHA-256 of the token, and each entry lives until the token expires.
+ * Only verified tokens are cached, so a forged token costs a full verification every time.
+ */
 @Service
 public class JwtService {
 
+    private static final String BEARER = "Bearer ";
+
     private final SecretKey key;
     private final String issuer;
     private final long expirationMillis;
+    private final JwtParser parser;
+    private final Cache<String, JwtPrincipal> verified;
 
     public JwtService(
             @Value("${app.jwt.secret}") String secret,
             @Value("${app.jwt.issuer}") String issuer,
-            @Value("${app.jwt.expiration-minutes}") long expirationMinutes) {
+            @Value("${app.jwt.expiration-minutes}") long expirationMinutes,
+            @Value("${app.jwt.verified-cache-size}") long verifiedCacheSize) {
         this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(
                 isBase64(secret) ? secret : Base64.getEncoder().encodeToString(secret.getBytes())));
         this.issuer = issuer;
         this.expirationMillis = expirationMinutes * 60_000;
+        // parsers are immutable and thread-safe
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
 
     public String generate(String username, Set<Role> roles) {
         Instant now = Instant.now();
         var roleNames = roles.stream().map(Role::name).toList();
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(username)
                 .issuer(issuer)
                 .issuedAt(Date.from(now))
@@ -45,26 +76,58 @@ public class JwtService {
                 .compact();
     }
 
-    public String getUsername(String token) {
-        return Jwts.parser().verifyWith(key).build()
-                .parseSignedClaims(token).getPayload().getSubject();
+    /**
+     * Verifies the token and extracts its claims in one pass.
+     *
+     * @return empty for malformed, forged and expired tokens
+     */
+    public Optional<JwtPrincipal> verify(String token) {
+        if (token == null || token.isBlank()) return Optional.empty();
+        String digest = digest(token);
+        JwtPrincipal principal = verified.getIfPresent(digest);
+        if (principal == null) {
+            principal = parse(token);
+            if (principal == null) return Optional.empty();
+            verified.put(digest, principal);
+        }
+        // the cache may keep an entry a moment past its expiry
+        return principal.isExpired(Instant.now()) ? Optional.empty() : Optional.of(principal);
+    }
+
+    /** The token of an {@code Authorization: Bearer} header, null for any other header. */
+    public static String bearerToken(String authorization) {
+        return authorization != null && authorization.startsWith(BEARER) ? authorization.substring(BEARER.length()) : null;
+    }
+
+    /** Full parse and signature check, bypassing the cache; null when the token is not acceptable. */
+    JwtPrincipal parse(String token) {
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getSubject() == null || claims.getExpiration() == null) return null;
+            return new JwtPrincipal(
+                    claims.getId(),
+                    claims.getSubject(),
+                    roles(claims.get("roles")),
+                    claims.getIssuedAt() == null ? null : claims.getIssuedAt().toInstant(),
+                    claims.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
-    public Set<String> getRoles(String token) {
-        Object roles = Jwts.parser().verifyWith(key).build()
-                .parseSignedClaims(token).getPayload().get("roles");
+    private static Set<String> roles(Object roles) {
         if (roles instanceof Collection<?> collection) {
             return collection.stream().map(Object::toString).collect(Collectors.toSet());
         }
         return Set.of();
     }
 
-    public boolean isValid(String token) {
+    private static String digest(String token) {
         try {
-            Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
@@ -77,4 +140,22 @@ public class JwtService {
         }
     }
 
-}
\ No newline at end of file
+    private static final class UntilTokenExpiry implements Expiry<String, JwtPrincipal> {
+
+        @Override
+        public long expireAfterCreate(String digest, JwtPrincipal principal, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), principal.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String digest, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String digest, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package pt.allanborges.restaurant.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ids ({@code jti}) of tokens revoked before their expiry, e.g. by logout.
+ * <p>
+ * Ids are grouped by the time slice their token expires in, and the slices live in a ring sized to the token
+ * lifetime. Once a slice is in the past its tokens are expired anyway, so the whole slice is dropped; nothing
+ * is ever removed id by id. A lookup is one array read and one hash lookup, with no allocation.
+ * <p>
+ * The set is per instance. Revocations that must reach every instance go through the account's
+ * {@code TOKENS_VALID_AFTER} epoch instead.
+ */
+@Component
+public class RevokedTokens {
+
+    private final long sliceMillis;
+    private final AtomicReferenceArray<Slice> ring;
+
+    public RevokedTokens(@Value("${app.jwt.expiration-minutes}") long expirationMinutes,
+                         @Value("${app.jwt.revocation-slice}") Duration slice) {
+        this.sliceMillis = slice.toMillis();
+        // every slice a live token can expire in, plus the current one and one being replaced
+        this.ring = new AtomicReferenceArray<>((int) (expirationMinutes * 60_000 / sliceMillis) + 2);
+    }
+
+    public void revoke(String tokenId, Instant expiresAt) {
+        if (tokenId == null || !expiresAt.isAfter(Instant.now())) return;
+        long index = expiresAt.toEpochMilli() / sliceMillis;
+        int slot = slot(index);
+        while (true) {
+            Slice slice = ring.get(slot);
+            if (slice != null && slice.index == index) {
+                slice.tokenIds.add(tokenId);
+                return;
+            }
+            // empty slot, or one still holding a slice whose tokens have all expired
+            ring.compareAndSet(slot, slice, new Slice(index));
+        }
+    }
+
+    public boolean isRevoked(String tokenId, Instant expiresAt) {
+        if (tokenId == null) return false;
+        long index = expiresAt.toEpochMilli() / sliceMillis;
+        Slice slice = ring.get(slot(index));
+        return slice != null && slice.index == index && slice.tokenIds.contains(tokenId);
+    }
+
+    // Releases the memory of past slices; correctness does not depend on it
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-slice}")
+    public void evictExpired() {
+        long current = System.currentTimeMillis() / sliceMillis;
+        for (int slot = 0; slot < ring.length(); slot++) {
+            Slice slice = ring.get(slot);
+            if (slice != null && slice.index < current)
+                ring.compareAndSet(slot, slice, null);
+        }
+    }
+
+    private int slot(long index) {
+        return (int) Math.floorMod(index, (long) ring.length());
+    }
+
+    private static final class Slice {
+
+        private final long index;
+        private final Set<String> tokenIds = ConcurrentHashMap.newKeySet();
+
+        private Slice(long index) {
+            this.index = index;
+        }
+    }
+
+}
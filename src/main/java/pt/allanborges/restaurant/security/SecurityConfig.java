@@ -10,8 +10,6 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import pt.allanborges.restaurant.model.enums.Role;
@@ -22,11 +20,7 @@ import pt.allanborges.restaurant.model.enums.Role;
 public class SecurityConfig {
 
     private final JwtAuthFilter jwtFilter;
-
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    private final AuthRateLimitFilter authRateLimitFilter;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -36,8 +30,13 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // OPEN endpoints
                         .requestMatchers("/auth/login", "/auth/register", "/auth/register-admin",
-                                "/v3/api-docs/**", "/swagger-ui/**").permitAll()
-                        .requestMatchers(HttpMethod.GET, "/v1/dishes", "/v1/dishes/*").permitAll()
+                                "/v3/api-docs/**", "/swagger-ui/**", "/actuator/health").permitAll()
+                        // each stream holds one of app.events.max-subscribers slots, so only signed-in clients get one
+                        .requestMatchers(HttpMethod.GET, "/v1/dishes/events").authenticated()
+                        .requestMatchers(HttpMethod.GET, "/v1/dishes", "/v1/dishes/*", "/v1/dishes/images/**").permitAll()
+
+                        // stock reservations are taken by waiters too
+                        .requestMatchers(HttpMethod.POST, "/v1/dishes/*/stock/reservations").hasAnyRole(Role.ADMIN.getCode(), Role.KITCHEN.getCode(), Role.WAITER.getCode())
 
                         // ROLE-protected dish writes
                         .requestMatchers(HttpMethod.POST, "/v1/dishes/**").hasAnyRole(Role.ADMIN.getCode(),Role.KITCHEN.getCode())
@@ -45,11 +44,14 @@ public class SecurityConfig {
 
                         // Other admin endpoints
                         .requestMatchers("/admin/users/**").hasRole(Role.ADMIN.getCode())
+                        .requestMatchers("/actuator/**").hasRole(Role.ADMIN.getCode())
 
                         // everything else
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+                // throttled logins and registrations never reach the user lookups or BCrypt
+                .addFilterBefore(authRateLimitFilter, JwtAuthFilter.class);
 
         return http.build();
     }
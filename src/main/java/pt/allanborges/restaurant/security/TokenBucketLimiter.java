@@ -0,0 +1,105 @@
+package pt.allanborges.restaurant.security;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token buckets per key: a key may spend {@code capacity} tokens at once and earns one back every
+ * {@code refillInterval}.
+ * <p>
+ * Keys are spread over lock stripes, each a small access-ordered map, so concurrent requests on different keys
+ * rarely share a lock. Memory is bounded two ways: a bucket that has refilled completely is indistinguishable
+ * from a new one and {@link #evictIdle()} drops it, and a stripe at its share of {@code maxKeys} drops its least
+ * recently used key, which at worst hands that key a fresh bucket.
+ */
+public final class TokenBucketLimiter {
+
+    private final double capacity;
+    private final long nanosPerToken;
+    private final Stripe[] stripes;
+
+    public TokenBucketLimiter(int capacity, Duration refillInterval, int stripes, int maxKeys) {
+        this.capacity = capacity;
+        this.nanosPerToken = refillInterval.toNanos();
+        int perStripe = Math.max(1, maxKeys / stripes);
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++)
+            this.stripes[i] = new Stripe(perStripe);
+    }
+
+    /** @return 0 when a token was taken, otherwise how long until the next one (nanoseconds) */
+    public long tryAcquire(String key) {
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        long now = System.nanoTime();
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, now);
+                stripe.put(key, bucket);
+            } else {
+                bucket.refill(now);
+            }
+            if (bucket.tokens >= 1) {
+                bucket.tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) * nanosPerToken);
+        }
+    }
+
+    /** Drops the buckets that have refilled completely since their last use. */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.values().removeIf(bucket -> {
+                    bucket.refill(now);
+                    return bucket.tokens >= capacity;
+                });
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private final class Bucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (double) (now - refilledAt) / nanosPerToken);
+            refilledAt = now;
+        }
+    }
+
+    private final class Stripe extends LinkedHashMap<String, Bucket> {
+
+        private final int maxKeys;
+
+        private Stripe(int maxKeys) {
+            super(16, 0.75f, true);
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > maxKeys;
+        }
+    }
+
+}
@@ -0,0 +1,7 @@
+package pt.allanborges.restaurant.security;
+
+/**
+ * Published whenever an account's status, roles or tokens change, so the {@link UserStatusCache}
+ * forgets it once the write has been committed.
+ */
+public record UserAccountChangedEvent(String username) {}
@@ -0,0 +1,87 @@
+package pt.allanborges.restaurant.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pt.allanborges.restaurant.model.entities.UserAccount;
+import pt.allanborges.restaurant.model.enums.Role;
+import pt.allanborges.restaurant.repository.UserAccountRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * What the auth filter needs to know about an account (active, current roles, token epoch), kept in memory so an
+ * authenticated request costs no query once its user has been seen.
+ * <p>
+ * Every write to an account publishes a {@link UserAccountChangedEvent}; the entry is dropped after commit
+ * and reloaded from the database on the next request. The TTL only bounds staleness from writes made
+ * outside this service (another instance, manual SQL).
+ */
+@Log4j2
+@Component
+public class UserStatusCache {
+
+    private final UserAccountRepository users;
+    private final Cache<String, UserStatus> statuses;
+
+    public UserStatusCache(UserAccountRepository users,
+                           @Value("${app.security.user-status.max-size}") long maxSize,
+                           @Value("${app.security.user-status.ttl}") Duration ttl) {
+        this.users = users;
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /** Status of the account, read from the database on a miss; unknown usernames come back inactive. */
+    public UserStatus get(String username) {
+        return statuses.get(username, this::load);
+    }
+
+    public void invalidate(String username) {
+        statuses.invalidate(username);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserAccountChanged(UserAccountChangedEvent event) {
+        invalidate(event.username());
+        log.debug("User status of {} invalidated", event.username());
+    }
+
+    private UserStatus load(String username) {
+        return users.findByUsername(username)
+                .map(UserStatus::of)
+                .orElseGet(() -> new UserStatus(username, false, Set.of(), null));
+    }
+
+    /** @param tokensValidAfter tokens issued before it are revoked; null when none ever were */
+    public record UserStatus(String username, boolean active, Set<String> roles, Instant tokensValidAfter) {
+
+        public UserStatus {
+            roles = Set.copyOf(roles);
+        }
+
+        public boolean accepts(Instant issuedAt) {
+            if (tokensValidAfter == null) return true;
+            return issuedAt != null && !issuedAt.isBefore(tokensValidAfter);
+        }
+
+        static UserStatus of(UserAccount user) {
+            return new UserStatus(user.getUsername(),
+                    user.isEnabled() && user.getInactivatedDate() == null,
+                    user.getRoles().stream().map(Role::name).collect(Collectors.toSet()),
+                    user.getTokensValidAfter() == null
+                            ? null : user.getTokensValidAfter().atZone(ZoneId.systemDefault()).toInstant());
+        }
+    }
+
+}
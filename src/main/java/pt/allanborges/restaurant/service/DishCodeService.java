@@ -1,9 +1,12 @@
 package pt.allanborges.restaurant.service;
 
 import jakarta.annotation.Nullable;
+import pt.allanborges.restaurant.model.dtos.DishCodeDTO;
 import pt.allanborges.restaurant.model.entities.DishCode;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface DishCodeService {
@@ -16,6 +19,12 @@ public interface DishCodeService {
     /** Save (passthrough) — useful for admin screens / seeds. */
     DishCode save(DishCode dishCode);
 
-    /** Resolve existing by code or create a new one (normalized UPPERCASE). */
+    /**
+     * Resolve existing by code or create a new one (normalized UPPERCASE), within the caller's transaction:
+     * a new code commits or rolls back with the dish that references it.
+     */
     DishCode resolveOrCreate(String rawCode, @Nullable String rawDescription);
+
+    /** Resolve or create every code in one lookup, keyed by normalized (UPPERCASE) code, within the caller's transaction. */
+    Map<String, DishCode> resolveOrCreateAll(Collection<DishCodeDTO> codes);
 }
\ No newline at end of file
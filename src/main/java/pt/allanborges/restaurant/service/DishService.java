@@ -1,14 +1,29 @@
 package pt.allanborges.restaurant.service;
 
 import org.springframework.data.domain.Page;
+import pt.allanborges.restaurant.model.dtos.CursorPageDTO;
+import pt.allanborges.restaurant.model.dtos.DishChangesDTO;
 import pt.allanborges.restaurant.model.dtos.DishDTO;
+import pt.allanborges.restaurant.model.dtos.DishFacetsDTO;
 import pt.allanborges.restaurant.model.dtos.DishFilterDTO;
+import pt.allanborges.restaurant.model.dtos.DishImageDTO;
+import pt.allanborges.restaurant.model.dtos.StockReservationDTO;
+import pt.allanborges.restaurant.service.catalog.EncodedMenu;
 
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface DishService {
+    // every transaction that stamps UPDATED_DATE ends within this, so the changes feed knows how far back to stay
+    int WRITE_TIMEOUT_SECONDS = 60;
+
     DishDTO createDish(final DishDTO dishDTO);
     List<DishDTO>findAllDishes();
+    Optional<EncodedMenu> findAllDishesEncoded();
     DishDTO getDishById(final Long dishId);
     DishDTO updateDish(final Long dishId, final DishDTO dishDTO);
     Page<DishDTO> findAllDishesPaginatedWithFilters(final Integer page,
@@ -16,4 +31,17 @@ public interface DishService {
                                            final String sort,
                                            final String orderBy,
                                            final DishFilterDTO filter);
+    CursorPageDTO<DishDTO> findAllDishesWithCursor(final String cursor,
+                                                   final Integer size,
+                                                   final String sort,
+                                                   final String orderBy,
+                                                   final DishFilterDTO filter);
+    DishFacetsDTO findDishFacets(final DishFilterDTO filter);
+    DishChangesDTO findChangesSince(final LocalDateTime since);
+    void exportAllDishes(final Consumer<DishDTO> consumer);
+    List<DishDTO> upsertDishes(final List<DishDTO> dishes);
+    StockReservationDTO reserveStock(final Long dishId, final int quantity);
+    StockReservationDTO releaseStock(final Long dishId, final int quantity);
+    DishImageDTO storeDishImage(final Long dishId, final InputStream content, final String contentType);
+    Optional<Path> findDishImage(final String fileName);
 }
\ No newline at end of file
@@ -8,9 +8,11 @@ public interface UserAccountService {
     //UserAdminController methods
     List<UserResponse> findAllUserAccounts();
     UserResponse approveUser(final Long id, final ApproveUserRequest req, final String by);
+    UserResponse revokeTokens(final Long id);
 
     //AuthController methods
     AuthResponse login(final AuthRequest req);
     UserResponse userRegister(final RegisterUserRequest req);
     UserResponse registerAdmin(final RegisterUserRequest req, final String providedSecret);
+    void logout(final String token);
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+package pt.allanborges.restaurant.service.catalog;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pt.allanborges.restaurant.model.dtos.DishDTO;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * In-memory, versioned snapshot of the active menu.
+ * <p>
+ * Reads are served from an immutable {@link Snapshot}; every committed dish write bumps the
+ * version and drops the snapshot, and the next reader reloads it once through the given loader.
+ * Stock movements are folded instead: they mark the snapshot stale and it is dropped at most once per
+ * {@code app.stock.publish-interval}, so a busy dish does not rebuild the whole menu on every sale.
+ * <p>
+ * A snapshot also carries the full menu as ready-to-write {@link EncodedMenu} bytes, so
+ * {@code GET /v1/dishes} neither serializes nor compresses per request. Catalogs bigger than
+ * {@code app.catalog.max-encoded-entries} are cached without them and serialized per request instead; the
+ * snapshot itself is always kept, so memory grows with the number of active dishes.
+ * <p>
+ * The version also backs the ETags of the public dish endpoints; it is prefixed with the boot
+ * time so a restarted instance never answers 304 for a tag issued by a previous one.
+ */
+@Log4j2
+@Component
+public class DishCatalog {
+
+    private final int maxEncodedEntries;
+    private final ObjectWriter menuWriter;
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final Object loadLock = new Object();
+    private final AtomicBoolean stockChanged = new AtomicBoolean();
+
+    public DishCatalog(@Value("${app.catalog.max-encoded-entries}") int maxEncodedEntries, ObjectMapper objectMapper) {
+        this.maxEncodedEntries = maxEncodedEntries;
+        this.menuWriter = objectMapper.writerFor(new TypeReference<List<DishDTO>>() { });
+    }
+
+    public Snapshot get(Supplier<List<DishDTO>> loader) {
+        Snapshot current = snapshot.get();
+        if (current != null && current.version() == version.get())
+            return current;
+
+        synchronized (loadLock) {
+            current = snapshot.get();
+            long expected = version.get();
+            if (current != null && current.version() == expected)
+                return current;
+
+            List<DishDTO> dishes = loader.get();
+            boolean oversized = dishes.size() > maxEncodedEntries;
+            // logged once per version, since the snapshot is kept either way
+            if (oversized)
+                log.warn("Dish catalog has {} entries (max {}), serving it without a pre-encoded menu", dishes.size(), maxEncodedEntries);
+            Snapshot loaded = Snapshot.of(expected, dishes, oversized ? null : EncodedMenu.encode(menuWriter, dishes));
+            // a write committed while loading leaves the version ahead, so readers will ignore this one
+            snapshot.set(loaded);
+            return loaded;
+        }
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /** Strong entity tag for anything served from the catalog at its current version. */
+    public String etag() {
+        return instanceTag + "-" + version.get();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDishChanged(DishChangedEvent event) {
+        if (event.change() == DishChangedEvent.Change.STOCK && event.dishId() != null) {
+            stockChanged.set(true);
+            return;
+        }
+        invalidate();
+        log.debug("Dish catalog invalidated by dish {}", event.dishId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.publish-interval}")
+    public void publishStockChanges() {
+        if (stockChanged.getAndSet(false)) {
+            invalidate();
+            log.debug("Dish catalog invalidated by stock changes");
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDishCodeChanged(DishCodeChangedEvent event) {
+        invalidate();
+        log.debug("Dish catalog invalidated by dish code {}", event.dishCodeId());
+    }
+
+    private void invalidate() {
+        version.incrementAndGet();
+        snapshot.set(null);
+    }
+
+    /**
+     * One catalog version. The DTOs it holds are shared by every reader, so they never leave it: every accessor
+     * hands out copies, and a caller mapping or trimming what it got cannot change what the next one sees.
+     */
+    public static final class Snapshot {
+
+        private final long version;
+        private final List<DishDTO> dishes;
+        private final Map<Long, DishDTO> byId;
+        private final Map<String, List<DishDTO>> byCode;
+        private final DishSearchIndex searchIndex;
+        private final EncodedMenu menu;
+
+        private Snapshot(long version, List<DishDTO> dishes, EncodedMenu menu) {
+            Map<Long, DishDTO> ids = new HashMap<>();
+            Map<String, List<DishDTO>> codes = new HashMap<>();
+            for (DishDTO dish : dishes) {
+                ids.put(dish.getId(), dish);
+                if (dish.getCode() != null && dish.getCode().getCode() != null)
+                    codes.computeIfAbsent(dish.getCode().getCode().toUpperCase(), c -> new ArrayList<>()).add(dish);
+            }
+            codes.replaceAll((code, list) -> List.copyOf(list));
+            this.version = version;
+            this.dishes = List.copyOf(dishes);
+            this.byId = Map.copyOf(ids);
+            this.byCode = Map.copyOf(codes);
+            this.searchIndex = DishSearchIndex.of(dishes);
+            this.menu = menu;
+        }
+
+        /** @param menu pre-encoded body, null for catalogs over {@code app.catalog.max-encoded-entries} */
+        static Snapshot of(long version, List<DishDTO> dishes, EncodedMenu menu) {
+            return new Snapshot(version, dishes, menu);
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public List<DishDTO> dishes() {
+            return copies(dishes);
+        }
+
+        /** Pre-encoded menu; its bytes are never modified, so it is shared as is. */
+        public EncodedMenu menu() {
+            return menu;
+        }
+
+        public Optional<DishDTO> findById(Long id) {
+            return Optional.ofNullable(byId.get(id)).map(Snapshot::copy);
+        }
+
+        public List<DishDTO> findByCode(String code) {
+            return code == null ? List.of() : copies(byCode.getOrDefault(code.trim().toUpperCase(), List.of()));
+        }
+
+        public List<Long> search(String query, int limit) {
+            return searchIndex.search(query, limit);
+        }
+
+        private static List<DishDTO> copies(List<DishDTO> dishes) {
+            List<DishDTO> copies = new ArrayList<>(dishes.size());
+            for (DishDTO dish : dishes) copies.add(copy(dish));
+            return copies;
+        }
+
+        private static DishDTO copy(DishDTO dish) {
+            return dish.toBuilder()
+                    .code(dish.getCode() == null ? null : dish.getCode().toBuilder().build())
+                    .build();
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package pt.allanborges.restaurant.service.catalog;
+
+/**
+ * Published whenever a dish is written. Listeners bound to the transaction
+ * (see {@link DishCatalog}) only react once the write has been committed.
+ * A null dish id stands for a change to many dishes at once (bulk upsert).
+ */
+public record DishChangedEvent(Long dishId, Change change) {
+
+    public DishChangedEvent(Long dishId) {
+        this(dishId, Change.UPDATED);
+    }
+
+    public enum Change {
+        CREATED,
+        UPDATED,
+        STOCK
+    }
+
+}
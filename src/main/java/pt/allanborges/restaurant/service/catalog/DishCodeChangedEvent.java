@@ -0,0 +1,7 @@
+package pt.allanborges.restaurant.service.catalog;
+
+/**
+ * Published whenever a dish code is created or updated, so anything derived from
+ * the catalog (snapshot, ETags) is refreshed once the write has been committed.
+ */
+public record DishCodeChangedEvent(Long dishCodeId) {}
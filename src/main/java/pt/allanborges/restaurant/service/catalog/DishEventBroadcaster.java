@@ -0,0 +1,391 @@
+package pt.allanborges.restaurant.service.catalog;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pt.allanborges.restaurant.controller.handlers.exceptions.SubscriberLimitException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent events for committed dish changes ({@code GET /v1/dishes/events}).
+ * <p>
+ * Publishing never waits on a client: each event is appended to a bounded history and offered to every
+ * subscriber's own pending buffer, and a small dispatcher pool writes the buffers out. Streams use servlet
+ * non-blocking I/O, so a dispatcher thread never waits on a socket either: it writes while the connection
+ * takes data and moves on, and the container calls back once a slow client has drained its window. A client
+ * that takes nothing for {@code app.events.write-timeout} is dropped and frees its slot. Pending events are
+ * coalesced per dish and kind, so a subscriber only ever gets the latest one; a subscriber that still falls
+ * more than {@code app.events.buffer-size} dishes behind gets a single {@code reset} event and has to resync.
+ * <p>
+ * Stock movements are folded before they get here: a dish sold many times within
+ * {@code app.stock.publish-interval} yields one {@code stock-changed} event, like the catalog refresh it stands for.
+ * <p>
+ * Events carry ids of the form {@code <instance>-<sequence>}. A reconnect with {@code Last-Event-ID} replays
+ * what the history still holds, or gets {@code reset} when the id is too old or from another instance.
+ */
+@Log4j2
+@Component
+public class DishEventBroadcaster {
+
+    private static final String RESET = "reset";
+    private static final String HEARTBEAT_KEY = "heartbeat";
+
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> stockChanged = ConcurrentHashMap.newKeySet();
+    private final Event[] history;
+    private long lastId;    // guarded by history
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final AtomicInteger openSlots = new AtomicInteger();
+    private final long timeoutMillis;
+    private final long writeTimeoutNanos;
+    private final ExecutorService dispatcher;
+
+    public DishEventBroadcaster(@Value("${app.events.history-size}") int historySize,
+                                @Value("${app.events.buffer-size}") int bufferSize,
+                                @Value("${app.events.max-subscribers}") int maxSubscribers,
+                                @Value("${app.events.timeout}") Duration timeout,
+                                @Value("${app.events.write-timeout}") Duration writeTimeout,
+                                @Value("${app.events.dispatch-threads}") int dispatchThreads) {
+        this.history = new Event[historySize];
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        AtomicInteger threads = new AtomicInteger();
+        // a subscriber is queued at most once at a time, so the queue never outgrows the subscriber count
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "dish-events-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Turns the request into an event stream, replaying what was missed since {@code lastEventId} when there is one.
+     *
+     * @throws SubscriberLimitException when {@code app.events.max-subscribers} streams are already open
+     */
+    public void subscribe(HttpServletRequest request, HttpServletResponse response, String lastEventId) throws IOException {
+        if (!claimSlot())
+            throw new SubscriberLimitException("Too many open dish event streams, retry later");
+        try {
+            response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            // proxies must pass events on as they come instead of buffering the response
+            response.setHeader("X-Accel-Buffering", "no");
+
+            AsyncContext async = request.startAsync(request, response);
+            async.setTimeout(timeoutMillis);
+            Subscriber subscriber = new Subscriber(async, response.getOutputStream());
+            async.addListener(subscriber);
+
+            // registering and replaying under the history lock leaves no gap between the replay and live events
+            synchronized (history) {
+                subscribers.add(subscriber);
+                if (lastEventId != null && !lastEventId.isBlank())
+                    replay(subscriber, lastEventId.trim());
+            }
+            // switches the stream to non-blocking mode; the container answers with the first onWritePossible
+            subscriber.listening = true;
+            subscriber.out.setWriteListener(subscriber);
+        } catch (IOException | RuntimeException e) {
+            openSlots.decrementAndGet();
+            throw e;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDishChanged(DishChangedEvent event) {
+        if (event.dishId() == null) {
+            publish("catalog-changed", null);
+            return;
+        }
+        switch (event.change()) {
+            case CREATED -> publish("dish-created", event.dishId());
+            case UPDATED -> publish("dish-updated", event.dishId());
+            case STOCK -> stockChanged.add(event.dishId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.publish-interval}")
+    public void publishStockChanges() {
+        for (Iterator<Long> it = stockChanged.iterator(); it.hasNext(); ) {
+            Long dishId = it.next();
+            it.remove();
+            publish("stock-changed", dishId);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDishCodeChanged(DishCodeChangedEvent event) {
+        // code texts are embedded in every dish of the code
+        publish("catalog-changed", null);
+    }
+
+    // Keeps proxies from closing idle streams, finds the clients that went away and drops the stalled ones
+    @Scheduled(fixedDelayString = "${app.events.heartbeat-interval}")
+    public void heartbeat() {
+        Event heartbeat = new Event(null, HEARTBEAT_KEY, null);
+        long now = System.nanoTime();
+        subscribers.forEach(subscriber -> {
+            if (subscriber.stalledFor(now) > writeTimeoutNanos) {
+                log.debug("Dropping dish event subscriber that took no data for {}", Duration.ofNanos(writeTimeoutNanos));
+                subscriber.close(true);
+            } else {
+                subscriber.offer(heartbeat);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.close(true));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private void publish(String name, Long dishId) {
+        synchronized (history) {
+            long id = ++lastId;
+            Event event = new Event(instanceTag + "-" + id, name, dishId);
+            history[(int) (id % history.length)] = event;
+            subscribers.forEach(subscriber -> subscriber.offer(event));
+        }
+    }
+
+    // caller holds the history lock
+    private void replay(Subscriber subscriber, String lastEventId) {
+        long seen = sequenceOf(lastEventId);
+        long oldest = Math.max(1, lastId - history.length + 1);
+        if (seen < 0 || seen > lastId || seen + 1 < oldest) {
+            subscriber.offerReset(lastId == 0 ? null : instanceTag + "-" + lastId);
+            return;
+        }
+        for (long id = seen + 1; id <= lastId; id++)
+            subscriber.offer(history[(int) (id % history.length)]);
+    }
+
+    private boolean claimSlot() {
+        for (int open; (open = openSlots.get()) < maxSubscribers; ) {
+            if (openSlots.compareAndSet(open, open + 1)) return true;
+        }
+        return false;
+    }
+
+    private long sequenceOf(String eventId) {
+        String prefix = instanceTag + "-";
+        if (!eventId.startsWith(prefix)) return -1;
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private record Event(String id, String name, Long dishId) {
+
+        // events of the same kind for the same dish replace each other while pending
+        String key() {
+            return dishId == null ? name : name + ":" + dishId;
+        }
+    }
+
+    private final class Subscriber implements WriteListener, AsyncListener {
+
+        private final AsyncContext async;
+        private final ServletOutputStream out;
+        private final LinkedHashMap<String, Event> pending = new LinkedHashMap<>();    // guarded by this
+        private boolean overflowed;                                                   // guarded by this
+        private String resetId;                                                       // guarded by this
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean writable = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean listening;
+        private volatile long unwritableSince;    // 0 while the connection takes data
+
+        private Subscriber(AsyncContext async, ServletOutputStream out) {
+            this.async = async;
+            this.out = out;
+        }
+
+        void offer(Event event) {
+            synchronized (this) {
+                if (overflowed) {
+                    if (event.id() != null) resetId = event.id();
+                    return;
+                }
+                // a coalesced event moves to the back with its newer id, so ids still arrive in order
+                if (pending.remove(event.key()) == null && pending.size() >= bufferSize) {
+                    offerReset(event.id());
+                } else {
+                    pending.put(event.key(), event);
+                }
+            }
+            schedule();
+        }
+
+        // the reset carries the id of the newest event it stands for, so a resynced client resumes from there
+        synchronized void offerReset(String eventId) {
+            overflowed = true;
+            pending.clear();
+            if (eventId != null) resetId = eventId;
+        }
+
+        // nothing can be written before the write listener is set; its first onWritePossible drains the replay
+        void schedule() {
+            if (listening && !closed.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        long stalledFor(long now) {
+            long since = unwritableSince;
+            return since == 0 ? 0 : now - since;
+        }
+
+        void close(boolean complete) {
+            if (!closed.compareAndSet(false, true)) return;
+            subscribers.remove(this);
+            openSlots.decrementAndGet();
+            if (complete) {
+                try {
+                    async.complete();
+                } catch (IllegalStateException e) {
+                    // the container already finished the request
+                }
+            }
+        }
+
+        // Writes while the connection takes data; once isReady() says no, the container owes us an onWritePossible
+        private void drain() {
+            boolean blocked = false;
+            writable.set(false);
+            try {
+                while (true) {
+                    if (!out.isReady()) {
+                        blocked = true;
+                        if (unwritableSince == 0) unwritableSince = System.nanoTime();
+                        break;
+                    }
+                    Event event = next();
+                    if (event == null) {
+                        out.flush();
+                        break;
+                    }
+                    out.write(encode(event));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping dish event subscriber: {}", e.getMessage());
+                close(true);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            // a callback that came while this drain was still running could not schedule one itself
+            if (blocked ? writable.get() : hasPending()) schedule();
+        }
+
+        private synchronized Event next() {
+            if (overflowed) {
+                overflowed = false;
+                return new Event(resetId, RESET, null);
+            }
+            Iterator<Map.Entry<String, Event>> it = pending.entrySet().iterator();
+            if (!it.hasNext()) return null;
+            Event event = it.next().getValue();
+            it.remove();
+            return event;
+        }
+
+        private synchronized boolean hasPending() {
+            return overflowed || !pending.isEmpty();
+        }
+
+        private byte[] encode(Event event) {
+            if (HEARTBEAT_KEY.equals(event.name()))
+                return (": " + HEARTBEAT_KEY + "\n\n").getBytes(StandardCharsets.UTF_8);
+            StringBuilder sse = new StringBuilder(64);
+            if (event.id() != null) sse.append("id:").append(event.id()).append('\n');
+            sse.append("event:").append(event.name()).append('\n');
+            sse.append("data:").append(event.dishId() == null ? "{}" : "{\"dishId\":" + event.dishId() + "}").append("\n\n");
+            return sse.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        /* ---------- WriteListener ---------- */
+
+        @Override
+        public void onWritePossible() {
+            unwritableSince = 0;
+            writable.set(true);
+            schedule();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            log.debug("Dish event stream failed: {}", t.getMessage());
+            close(true);
+        }
+
+        /* ---------- AsyncListener ---------- */
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            close(false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // clients reconnect with Last-Event-ID
+            close(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // not restarted
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package pt.allanborges.restaurant.service.catalog;
+
+import pt.allanborges.restaurant.model.dtos.DishDTO;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over dish name and description, rebuilt with every catalog snapshot.
+ * <p>
+ * Text is folded for Portuguese (lowercase, accents removed, common stopwords dropped and
+ * plurals reduced to their singular) and ranked with BM25, name matches weighing more than
+ * description matches. Every query term must match; the last one also matches as a prefix
+ * so the index can be queried while the user is typing.
+ */
+public final class DishSearchIndex {
+
+    private static final float NAME_BOOST = 3f;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "o", "as", "os", "e", "de", "da", "do", "das", "dos", "em", "no", "na", "nos", "nas",
+            "um", "uma", "uns", "umas", "com", "por", "para", "pra", "ao", "aos", "ou", "que", "se");
+
+    private final long[] ids;
+    private final float[] lengths;
+    private final float averageLength;
+    private final NavigableMap<String, Map<Integer, Float>> postings;
+
+    private DishSearchIndex(long[] ids, float[] lengths, NavigableMap<String, Map<Integer, Float>> postings) {
+        this.ids = ids;
+        this.lengths = lengths;
+        this.postings = postings;
+        float total = 0;
+        for (float length : lengths) total += length;
+        this.averageLength = lengths.length == 0 ? 1 : Math.max(total / lengths.length, 1);
+    }
+
+    public static DishSearchIndex of(List<DishDTO> dishes) {
+        long[] ids = new long[dishes.size()];
+        float[] lengths = new float[dishes.size()];
+        NavigableMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+        for (int doc = 0; doc < dishes.size(); doc++) {
+            DishDTO dish = dishes.get(doc);
+            ids[doc] = dish.getId();
+            lengths[doc] = addField(postings, doc, dish.getName(), NAME_BOOST)
+                    + addField(postings, doc, dish.getDescription(), 1f);
+        }
+        return new DishSearchIndex(ids, lengths, postings);
+    }
+
+    /** Ids of the dishes matching every term of the query, best match first. */
+    public List<Long> search(String query, int limit) {
+        List<String> terms = analyze(query);
+        if (terms.isEmpty()) return List.of();
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        Map<Integer, Float> scores = null;
+        for (int i = 0; i < terms.size(); i++) {
+            Map<Integer, Float> termScores = score(terms.get(i), lastIsPrefix && i == terms.size() - 1);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<Integer, Float> previous = scores;
+                scores = new HashMap<>();
+                for (Map.Entry<Integer, Float> e : termScores.entrySet()) {
+                    Float sofar = previous.get(e.getKey());
+                    if (sofar != null) scores.put(e.getKey(), sofar + e.getValue());
+                }
+            }
+            if (scores.isEmpty()) return List.of();
+        }
+
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Float>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(e -> ids[e.getKey()])
+                .toList();
+    }
+
+    private Map<Integer, Float> score(String term, boolean prefix) {
+        // a prefix expands to every indexed term starting with it, keeping the best weight per dish
+        Map<Integer, Float> frequencies = new HashMap<>();
+        Collection<Map<Integer, Float>> matches = prefix
+                ? postings.subMap(term, true, term + Character.MAX_VALUE, false).values()
+                : Optional.ofNullable(postings.get(term)).map(List::of).orElse(List.of());
+        for (Map<Integer, Float> posting : matches)
+            posting.forEach((doc, tf) -> frequencies.merge(doc, tf, Math::max));
+
+        int documentFrequency = frequencies.size();
+        double idf = Math.log(1 + (ids.length - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        Map<Integer, Float> scores = new HashMap<>(frequencies.size());
+        frequencies.forEach((doc, tf) -> {
+            float norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+            scores.put(doc, (float) (idf * tf * (K1 + 1) / (tf + norm)));
+        });
+        return scores;
+    }
+
+    private static float addField(Map<String, Map<Integer, Float>> postings, int doc, String text, float boost) {
+        List<String> terms = analyze(text);
+        for (String term : terms)
+            postings.computeIfAbsent(term, t -> new HashMap<>()).merge(doc, boost, Float::sum);
+        return terms.size() * boost;
+    }
+
+    static List<String> analyze(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> terms = new ArrayList<>();
+        for (String token : NON_WORD.split(folded)) {
+            if (token.isEmpty() || STOPWORDS.contains(token)) continue;
+            terms.add(singular(token));
+        }
+        return terms;
+    }
+
+    // Plural reduction for (accent-folded) Portuguese nouns and adjectives: limoes -> limao, pasteis -> pastel
+    static String singular(String token) {
+        if (token.length() <= 3 || !token.endsWith("s")) return token;
+        if (token.endsWith("oes") || token.endsWith("aes")) return token.substring(0, token.length() - 3) + "ao";
+        if (token.endsWith("ais")) return token.substring(0, token.length() - 3) + "al";
+        if (token.endsWith("eis")) return token.substring(0, token.length() - 3) + "el";
+        if (token.endsWith("ois")) return token.substring(0, token.length() - 3) + "ol";
+        if (token.endsWith("ns")) return token.substring(0, token.length() - 2) + "m";
+        if (token.endsWith("res") || token.endsWith("zes")) return token.substring(0, token.length() - 2);
+        if (token.endsWith("ss") || token.endsWith("us") || token.endsWith("is")) return token;
+        return token.substring(0, token.length() - 1);
+    }
+
+}
@@ -0,0 +1,62 @@
+package pt.allanborges.restaurant.service.catalog;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import pt.allanborges.restaurant.model.dtos.DishDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The menu as the response body of {@code GET /v1/dishes}, serialized and compressed once per catalog version.
+ * Compression runs at the highest level since its cost is paid once, not per request.
+ */
+public record EncodedMenu(byte[] identity, byte[] gzip) {
+
+    public static final String GZIP = "gzip";
+
+    static EncodedMenu encode(ObjectWriter writer, List<DishDTO> dishes) {
+        try {
+            byte[] json = writer.writeValueAsBytes(dishes);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                out.write(json);
+            }
+            return new EncodedMenu(json, compressed.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode the dish catalog", e);
+        }
+    }
+
+    /** Whether an {@code Accept-Encoding} header lets the gzip variant be sent. */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!GZIP.equals(parts[0].trim().toLowerCase(Locale.ROOT))) continue;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) return !isZero(param.substring(2));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isZero(String quality) {
+        try {
+            return Double.parseDouble(quality.trim()) == 0;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+}
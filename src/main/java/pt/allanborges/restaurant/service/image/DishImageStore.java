@@ -0,0 +1,295 @@
+package pt.allanborges.restaurant.service.image;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed dish images on local disk.
+ * <p>
+ * Uploads are copied from the request stream to a temporary file while their SHA-256 is computed, then moved
+ * to {@code <hash>.<ext>}; the same bytes always end up under the same name, so served files never change and
+ * can be cached forever. Files are spread over two-character subdirectories to keep directories small.
+ * Thumbnails ({@code <hash>-thumb.<ext>}) are rendered by a small bounded pool; when its queue is full the
+ * thumbnail is skipped rather than holding up the upload, and queued again the next time the same image is uploaded.
+ * <p>
+ * Dimensions are read from the image header before anything is decoded: files whose header does not match the
+ * declared type and images over {@code app.images.max-pixels} are refused, and thumbnails are decoded subsampled,
+ * so a small file that inflates to a huge bitmap cannot exhaust the heap.
+ */
+@Log4j2
+@Component
+public class DishImageStore {
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", "jpg",
+            "image/png", "png",
+            "image/webp", "webp");
+    private static final Pattern FILE_NAME = Pattern.compile("([0-9a-f]{64})(-thumb)?\\.(jpg|png|webp)");
+    private static final String THUMB_SUFFIX = "-thumb";
+    // ImageIO format name each extension has to be read as
+    private static final Map<String, String> FORMATS = Map.of("jpg", "jpeg", "png", "png");
+
+    private final Path root;
+    private final int thumbnailWidth;
+    private final long maxPixels;
+    private final ThreadPoolExecutor thumbnailer;
+
+    public DishImageStore(@Value("${app.images.dir}") String dir,
+                          @Value("${app.images.thumbnail-width}") int thumbnailWidth,
+                          @Value("${app.images.max-pixels}") long maxPixels,
+                          @Value("${app.images.thumbnail-workers}") int workers,
+                          @Value("${app.images.thumbnail-queue}") int queueCapacity) throws IOException {
+        this.root = Files.createDirectories(Path.of(dir)).toAbsolutePath();
+        this.thumbnailWidth = thumbnailWidth;
+        this.maxPixels = maxPixels;
+        AtomicInteger threads = new AtomicInteger();
+        this.thumbnailer = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "dish-thumbnail-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Stores the image and queues its thumbnail.
+     *
+     * @return the file name the image is served under, and the thumbnail's when it exists or is being rendered
+     * @throws IllegalArgumentException for unsupported types, empty files, files that are not an image of the
+     *                                  declared type and images over the pixel limit
+     */
+    public StoredImage store(InputStream content, String contentType) {
+        String extension = contentType == null ? null : EXTENSIONS.get(contentType.toLowerCase());
+        if (extension == null)
+            throw new IllegalArgumentException("Unsupported image type: " + contentType + ". Allowed: " + EXTENSIONS.keySet());
+
+        try {
+            Path temp = Files.createTempFile(root, "upload-", ".tmp");
+            try {
+                MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+                long size;
+                try (InputStream in = new DigestInputStream(content, sha256);
+                     OutputStream out = Files.newOutputStream(temp)) {
+                    size = in.transferTo(out);
+                }
+                if (size == 0)
+                    throw new IllegalArgumentException("Image file is empty");
+                requireImage(temp, extension);
+
+                String hash = HexFormat.of().formatHex(sha256.digest());
+                String fileName = hash + "." + extension;
+                Path target = pathOf(hash, fileName);
+                if (Files.exists(target)) {
+                    Files.delete(temp);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+                // a re-upload also retries a thumbnail that was skipped or failed the first time
+                boolean thumbnail = thumbnailSupported(extension) && queueThumbnail(hash, extension, target);
+                return new StoredImage(fileName, thumbnail ? hash + THUMB_SUFFIX + "." + extension : null, size);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store image", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The file behind a served name; empty for names this store would never produce, and for missing files. */
+    public Optional<Path> find(String fileName) {
+        Matcher matcher = FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) return Optional.empty();
+        Path file = pathOf(matcher.group(1), fileName);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        thumbnailer.shutdownNow();
+    }
+
+    /* ---------- helpers ---------- */
+
+    /** @return whether the thumbnail exists or has been queued; false when the queue is full or it cannot be made */
+    private boolean queueThumbnail(String hash, String extension, Path source) {
+        Path target = pathOf(hash, hash + THUMB_SUFFIX + "." + extension);
+        if (Files.exists(target)) return true;
+        try {
+            thumbnailer.execute(() -> {
+                try {
+                    writeThumbnail(source, target, extension);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not create thumbnail for {}: {}", source.getFileName(), e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Thumbnail queue is full, skipping the thumbnail of {}", source.getFileName());
+            return false;
+        }
+    }
+
+    // Only the header is read. JPEG and PNG must be what ImageIO says they are; WebP, which ImageIO cannot read,
+    // is recognized by its RIFF header and sized from its first chunk
+    private void requireImage(Path file, String extension) throws IOException {
+        if ("webp".equals(extension)) {
+            requireWithinPixelLimit(webpDimensions(file));
+            return;
+        }
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = readerFor(in);
+            if (reader == null || !FORMATS.get(extension).equalsIgnoreCase(reader.getFormatName()))
+                throw new IllegalArgumentException("File is not a " + extension + " image");
+            try {
+                reader.setInput(in, true, true);
+                requireWithinPixelLimit(new int[] {reader.getWidth(0), reader.getHeight(0)});
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void requireWithinPixelLimit(int[] dimensions) {
+        if ((long) dimensions[0] * dimensions[1] > maxPixels)
+            throw new IllegalArgumentException("Image is too large: " + dimensions[0] + "x" + dimensions[1]
+                    + " pixels, at most " + maxPixels + " allowed");
+    }
+
+    // Canvas size of the VP8X, VP8L or VP8 chunk that follows the RIFF/WEBP header
+    private static int[] webpDimensions(Path file) throws IOException {
+        byte[] header = new byte[30];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(header, 0, header.length);
+        }
+        String riff = new String(header, 0, Math.min(read, 16), StandardCharsets.US_ASCII);
+        if (read == header.length && riff.startsWith("RIFF") && riff.startsWith("WEBP", 8)) {
+            switch (riff.substring(12, 16)) {
+                case "VP8X":
+                    return new int[] {1 + uint24(header, 24), 1 + uint24(header, 27)};
+                case "VP8L":
+                    if (header[20] == 0x2f) {
+                        int bits = uint24(header, 21) | (header[24] & 0xff) << 24;
+                        return new int[] {1 + (bits & 0x3fff), 1 + (bits >>> 14 & 0x3fff)};
+                    }
+                    break;
+                case "VP8 ":
+                    if ((header[23] & 0xff) == 0x9d && header[24] == 0x01 && header[25] == 0x2a)
+                        return new int[] {uint16(header, 26) & 0x3fff, uint16(header, 28) & 0x3fff};
+                    break;
+                default:
+                    break;
+            }
+        }
+        throw new IllegalArgumentException("File is not a webp image");
+    }
+
+    private static int uint16(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+    }
+
+    private static int uint24(byte[] bytes, int offset) {
+        return uint16(bytes, offset) | (bytes[offset + 2] & 0xff) << 16;
+    }
+
+    private void writeThumbnail(Path source, Path target, String extension) throws IOException {
+        if (Files.exists(target)) return;
+        BufferedImage image = readSubsampled(source);
+        if (image == null) {
+            log.warn("{} is not a readable image, no thumbnail", source.getFileName());
+            return;
+        }
+        int width = Math.min(thumbnailWidth, image.getWidth());
+        int height = Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+        int type = "png".equals(extension) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage thumbnail = new BufferedImage(width, height, type);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        Path temp = Files.createTempFile(target.getParent(), "thumb-", ".tmp");
+        try {
+            ImageIO.write(thumbnail, "jpg".equals(extension) ? "jpeg" : extension, temp.toFile());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Decodes every n-th pixel in both directions, so the bitmap holds about (2 x thumbnail width)^2 pixels whatever
+    // the aspect ratio of the full image
+    private BufferedImage readSubsampled(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            ImageReader reader = readerFor(in);
+            if (reader == null) return null;
+            try {
+                reader.setInput(in, true, true);
+                double pixels = (double) reader.getWidth(0) * reader.getHeight(0);
+                double budget = 4.0 * thumbnailWidth * thumbnailWidth;
+                int step = Math.max(1, (int) Math.ceil(Math.sqrt(pixels / budget)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static ImageReader readerFor(ImageInputStream in) {
+        if (in == null) return null;
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        return readers.hasNext() ? readers.next() : null;
+    }
+
+    // ImageIO has no WebP codec, those images are served without a thumbnail
+    private static boolean thumbnailSupported(String extension) {
+        return !"webp".equals(extension);
+    }
+
+    private Path pathOf(String hash, String fileName) {
+        return root.resolve(hash.substring(0, 2)).resolve(fileName);
+    }
+
+    public record StoredImage(String fileName, String thumbnailFileName, long size) {
+    }
+
+}
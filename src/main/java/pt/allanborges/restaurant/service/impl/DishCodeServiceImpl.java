@@ -1,27 +1,63 @@
 package pt.allanborges.restaurant.service.impl;
 
 import jakarta.annotation.Nullable;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.allanborges.restaurant.model.dtos.DishCodeDTO;
 import pt.allanborges.restaurant.model.entities.DishCode;
 import pt.allanborges.restaurant.repository.DishCodeRepository;
 import pt.allanborges.restaurant.service.DishCodeService;
+import pt.allanborges.restaurant.service.DishService;
+import pt.allanborges.restaurant.service.catalog.DishCodeChangedEvent;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Codes are few and almost never change, so a normalized-code dictionary of their ids is loaded at startup.
+ * A known code resolves to a reference without any query. An unknown one is looked up, and inserted when
+ * missing, in the transaction of the dish that needs it, so a failed dish write takes its new code with it;
+ * the dictionary only learns a code once the transaction that read or created it has committed.
+ * <p>
+ * The dictionary holds immutable {@link KnownCode} values, never entities, so nothing in it is shared
+ * between persistence contexts.
+ */
 @Log4j2
 @Service
 @RequiredArgsConstructor
 public class DishCodeServiceImpl implements DishCodeService {
 
     private final DishCodeRepository dishCodeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<String, KnownCode> dictionary = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadDictionary() {
+        dishCodeRepository.findAll().forEach(code -> remember(KnownCode.of(code)));
+        log.info("Loaded {} dish codes", dictionary.size());
+    }
 
     @Override
     public Optional<DishCode> findByCodeIgnoreCase(String rawCode) {
-        return dishCodeRepository.findByCodeIgnoreCase(normalize(rawCode));
+        String normalized = normalize(rawCode);
+        KnownCode known = dictionary.get(normalized);
+        // by id, the row comes from the second-level cache
+        return known != null ? dishCodeRepository.findById(known.id()) : dishCodeRepository.findByCodeIgnoreCase(normalized);
     }
 
     @Override
@@ -35,31 +71,98 @@ public class DishCodeServiceImpl implements DishCodeService {
     }
 
     @Override
-    @Transactional
+    @Transactional(timeout = DishService.WRITE_TIMEOUT_SECONDS)
     public DishCode save(DishCode dishCode) {
         // minimal normalization guard
         dishCode.setCode(normalize(dishCode.getCode()));
         if (dishCode.getDescription() != null) {
             dishCode.setDescription(dishCode.getDescription().trim());
         }
-        return dishCodeRepository.save(dishCode);
+        DishCode saved = dishCodeRepository.save(dishCode);
+        eventPublisher.publishEvent(new DishCodeChangedEvent(saved.getId()));
+        return saved;
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.MANDATORY)
     public DishCode resolveOrCreate(String rawCode, @Nullable String rawDescription) {
         String normalized = normalize(rawCode);
+        KnownCode known = dictionary.get(normalized);
+        if (known != null) return dishCodeRepository.getReferenceById(known.id());
         return dishCodeRepository.findByCodeIgnoreCase(normalized)
-                .orElseGet(() -> dishCodeRepository.save(
-                        DishCode.builder()
-                                .code(normalized)
-                                .description(normalizeDesc(rawDescription))
-                                .build()
-                ));
+                .map(this::rememberAfterCommit)
+                .orElseGet(() -> insert(normalized, normalizeDesc(rawDescription)));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<String, DishCode> resolveOrCreateAll(Collection<DishCodeDTO> codes) {
+        // first description seen wins for codes that still have to be created
+        Map<String, String> descriptions = new LinkedHashMap<>();
+        codes.forEach(c -> descriptions.putIfAbsent(normalize(c.getCode()), normalizeDesc(c.getDescription())));
+
+        Map<String, DishCode> found = new LinkedHashMap<>();
+        List<String> unknown = descriptions.keySet().stream().filter(code -> !dictionary.containsKey(code)).toList();
+        if (!unknown.isEmpty())
+            dishCodeRepository.findByCodeInIgnoreCase(unknown).forEach(code -> found.put(code.getCode().toUpperCase(), rememberAfterCommit(code)));
+
+        Map<String, DishCode> resolved = new LinkedHashMap<>();
+        descriptions.forEach((code, description) -> {
+            KnownCode known = dictionary.get(code);
+            DishCode dishCode = known != null ? dishCodeRepository.getReferenceById(known.id()) : found.get(code);
+            resolved.put(code, dishCode != null ? dishCode : insert(code, description));
+        });
+        return resolved;
+    }
+
+    // Codes saved through this instance (admin save, inserts) are re-read once committed. Other instances keep the
+    // entries they already hold and only read codes they do not know yet
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDishCodeChanged(DishCodeChangedEvent event) {
+        if (event.dishCodeId() == null) {
+            dictionary.clear();
+            loadDictionary();
+            return;
+        }
+        dishCodeRepository.findById(event.dishCodeId()).ifPresent(code -> remember(KnownCode.of(code)));
     }
 
     /* ---------- helpers ---------- */
 
+    // A concurrent insert of the same code fails the unique constraint once the other transaction commits; the
+    // caller's transaction is lost then, and a retry finds the committed row
+    private DishCode insert(String code, String description) {
+        DishCode created = dishCodeRepository.saveAndFlush(
+                DishCode.builder()
+                        .code(code)
+                        .description(description)
+                        .build());
+        eventPublisher.publishEvent(new DishCodeChangedEvent(created.getId()));
+        return created;
+    }
+
+    // The row may have been inserted earlier in this same transaction, so it is only remembered once committed
+    private DishCode rememberAfterCommit(DishCode code) {
+        KnownCode known = KnownCode.of(code);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remember(known);
+            return code;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(known);
+            }
+        });
+        return code;
+    }
+
+    private void remember(KnownCode code) {
+        // a renamed code must not stay reachable under its old key
+        dictionary.values().removeIf(known -> known.id().equals(code.id()) && !known.code().equals(code.code()));
+        dictionary.put(code.code(), code);
+    }
+
     private String normalize(String code) {
         if (code == null || code.isBlank())
             throw new IllegalArgumentException("Dish code is required");
@@ -73,4 +176,11 @@ public class DishCodeServiceImpl implements DishCodeService {
         return (desc == null || desc.isBlank()) ? null : desc.trim();
     }
 
-}
\ No newline at end of file
+    private record KnownCode(Long id, String code) {
+
+        static KnownCode of(DishCode code) {
+            return new KnownCode(code.getId(), code.getCode().toUpperCase());
+        }
+    }
+
+}
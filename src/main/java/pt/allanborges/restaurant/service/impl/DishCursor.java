@@ -0,0 +1,38 @@
+package pt.allanborges.restaurant.service.impl;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination: the sort key and direction of the
+ * listing plus the sort value and id of the last row served. The raw value is kept as
+ * text and converted back by {@link DishServiceImpl} according to the sort key.
+ */
+record DishCursor(String orderBy, Sort.Direction direction, Long lastId, String lastKey) {
+
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+
+    String encode() {
+        String raw = String.join(SEPARATOR, VERSION, orderBy, direction.name(), lastId.toString(),
+                lastKey == null ? "" : lastKey);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static DishCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // the key is last so that text values may contain the separator
+            String[] parts = raw.split("\\|", 5);
+            if (parts.length != 5 || !VERSION.equals(parts[0]))
+                throw new IllegalArgumentException("Invalid cursor");
+            return new DishCursor(parts[1], Sort.Direction.valueOf(parts[2]), Long.valueOf(parts[3]), parts[4]);
+        } catch (IllegalArgumentException e) {
+            // also covers malformed Base64, unknown directions and non-numeric ids
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+}
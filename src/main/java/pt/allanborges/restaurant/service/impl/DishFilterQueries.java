@@ -0,0 +1,291 @@
+package pt.allanborges.restaurant.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import pt.allanborges.restaurant.model.dtos.DishFields;
+import pt.allanborges.restaurant.model.entities.Dish;
+import pt.allanborges.restaurant.model.entities.DishCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles the dish listing criteria once per filter shape and binds every filter value as a parameter.
+ * <p>
+ * Reusing the same {@link CriteriaQuery} instance lets Hibernate's query plan cache
+ * ({@code hibernate.criteria.plan_cache_enabled}) hit, and keeps the SQL text stable so Oracle
+ * soft-parses instead of hard-parsing every distinct filter value.
+ */
+@Component
+class DishFilterQueries {
+
+    private static final String PRICE = "price";
+    private static final String STOCK = "stock";
+    private static final String CODE = "code";
+
+    private static final String P_ID = "id";
+    private static final String P_NAME = "name";
+    private static final String P_DESCRIPTION = "description";
+    private static final String P_PRICE = "price";
+    private static final String P_STOCK = "stock";
+    private static final String P_CODE = "code";
+    private static final String P_HIT = "hit";
+    private static final String P_CREATED_FROM = "createdFrom";
+    private static final String P_CREATED_TO = "createdTo";
+    private static final String P_SEEK_KEY = "seekKey";
+    private static final String P_SEEK_ID = "seekId";
+
+    static final String F_CODE = "code";
+    static final String F_PRICE_BUCKET = "priceBucket";
+    static final String F_IN_STOCK = "inStock";
+    static final String F_COUNT = "count";
+
+    // keys come from the request (filter shape x sort x fields=), so each cache keeps only the most used ones;
+    // an evicted query is simply compiled again
+    private final Cache<PageKey, CriteriaQuery<Tuple>> pageQueries;
+    private final Cache<DishFilterValues.Shape, CriteriaQuery<Long>> countQueries;
+    private final Cache<SeekKey, CriteriaQuery<Tuple>> seekQueries;
+    private final Cache<DishFilterValues.Shape, CriteriaQuery<Tuple>> facetQueries;
+    private final List<BigDecimal> priceBounds;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    DishFilterQueries(@Value("${app.catalog.price-buckets}") List<BigDecimal> priceBounds,
+                      @Value("${app.catalog.compiled-queries}") int compiledQueries) {
+        this.priceBounds = priceBounds.stream().sorted().toList();
+        this.pageQueries = bounded(compiledQueries);
+        this.countQueries = bounded(compiledQueries);
+        this.seekQueries = bounded(compiledQueries);
+        this.facetQueries = bounded(compiledQueries);
+    }
+
+    /** Upper bounds (exclusive) of the price histogram; bucket i holds prices below bound i, the last one the rest. */
+    List<BigDecimal> priceBounds() {
+        return priceBounds;
+    }
+
+    TypedQuery<Tuple> page(DishFilterValues filter, Sort sort, DishFields fields) {
+        CriteriaQuery<Tuple> cq = pageQueries.get(new PageKey(filter.shape(), sort, fields), this::compilePage);
+        return bind(entityManager.createQuery(cq), filter);
+    }
+
+    TypedQuery<Long> count(DishFilterValues filter) {
+        CriteriaQuery<Long> cq = countQueries.get(filter.shape(), this::compileCount);
+        return bind(entityManager.createQuery(cq), filter);
+    }
+
+    /** One row per (code, price bucket, in stock) group, see {@link #F_CODE} and friends. */
+    TypedQuery<Tuple> facets(DishFilterValues filter) {
+        CriteriaQuery<Tuple> cq = facetQueries.get(filter.shape(), this::compileFacets);
+        return bind(entityManager.createQuery(cq), filter);
+    }
+
+    TypedQuery<Tuple> seek(DishFilterValues filter, String key, Sort.Direction direction, DishCursor after, DishFields fields) {
+        CriteriaQuery<Tuple> cq = seekQueries.get(
+                new SeekKey(filter.shape(), key, direction, after != null, fields), this::compileSeek);
+        TypedQuery<Tuple> query = bind(entityManager.createQuery(cq), filter);
+        if (after != null) {
+            query.setParameter(P_SEEK_ID, after.lastId());
+            if (!"id".equals(key)) query.setParameter(P_SEEK_KEY, seekKey(key, after.lastKey()));
+        }
+        return query;
+    }
+
+    private static <K, V> Cache<K, V> bounded(int maximumSize) {
+        return Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    private CriteriaQuery<Tuple> compilePage(PageKey key) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Dish> root = cq.from(Dish.class);
+        Join<Dish, DishCode> codeJoin = root.join(CODE);
+        cq.multiselect(DishProjection.selections(root, codeJoin, key.fields()))
+                .where(predicates(key.shape(), cb, root, codeJoin).toArray(new Predicate[0]));
+
+        List<Order> orders = new ArrayList<>();
+        key.sort().forEach(order -> {
+            Path<?> p = resolvePath(order.getProperty(), root, codeJoin);
+            orders.add(order.isAscending() ? cb.asc(p) : cb.desc(p));
+        });
+        if (!orders.isEmpty()) cq.orderBy(orders);
+        return cq;
+    }
+
+    private CriteriaQuery<Long> compileCount(DishFilterValues.Shape shape) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Dish> root = cq.from(Dish.class);
+        return cq.select(cb.count(root))
+                .where(predicates(shape, cb, root, null).toArray(new Predicate[0]));
+    }
+
+    // Bucket bounds are literals, not parameters: Oracle only accepts the GROUP BY if it repeats the select expressions verbatim
+    private CriteriaQuery<Tuple> compileFacets(DishFilterValues.Shape shape) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Dish> root = cq.from(Dish.class);
+        Join<Dish, DishCode> codeJoin = root.join(CODE);
+
+        Path<String> code = codeJoin.get(CODE);
+        CriteriaBuilder.Case<Integer> priceBucket = cb.selectCase();
+        for (int i = 0; i < priceBounds.size(); i++)
+            priceBucket = priceBucket.when(cb.lessThan(root.get(PRICE), cb.literal(priceBounds.get(i))), cb.literal(i));
+        Expression<Integer> bucket = priceBucket.otherwise(cb.literal(priceBounds.size()));
+        Expression<Integer> inStock = cb.<Integer>selectCase()
+                .when(cb.greaterThan(root.get(STOCK), cb.literal(0)), cb.literal(1))
+                .otherwise(cb.literal(0));
+
+        return cq.multiselect(code.alias(F_CODE), bucket.alias(F_PRICE_BUCKET), inStock.alias(F_IN_STOCK), cb.count(root).alias(F_COUNT))
+                .where(predicates(shape, cb, root, codeJoin).toArray(new Predicate[0]))
+                .groupBy(code, bucket, inStock);
+    }
+
+    // Seeks past the last served (key, id) instead of skipping an offset, so every page costs the same
+    private CriteriaQuery<Tuple> compileSeek(SeekKey key) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Dish> root = cq.from(Dish.class);
+        Join<Dish, DishCode> codeJoin = root.join(CODE);
+        cq.multiselect(DishProjection.selections(root, codeJoin, key.fields()));
+        List<Predicate> predicates = predicates(key.shape(), cb, root, codeJoin);
+
+        boolean ascending = key.direction().isAscending();
+        Path<Long> idPath = root.get("id");
+        Path<?> keyPath = "id".equals(key.key()) ? idPath : resolvePath(key.key(), root, codeJoin);
+        if (key.seeking()) {
+            ParameterExpression<Long> lastId = cb.parameter(Long.class, P_SEEK_ID);
+            Predicate pastId = ascending ? cb.greaterThan(idPath, lastId) : cb.lessThan(idPath, lastId);
+            predicates.add(switch (key.key()) {
+                case "id" -> pastId;
+                case PRICE -> pastKey(keyPath, BigDecimal.class, pastId, ascending, cb);
+                case STOCK -> pastKey(keyPath, Integer.class, pastId, ascending, cb);
+                default -> pastKey(keyPath, String.class, pastId, ascending, cb);
+            });
+        }
+        cq.where(predicates.toArray(new Predicate[0]));
+
+        Order idOrder = ascending ? cb.asc(idPath) : cb.desc(idPath);
+        if (keyPath == idPath)
+            cq.orderBy(idOrder);
+        else
+            cq.orderBy(ascending ? cb.asc(keyPath) : cb.desc(keyPath), idOrder);
+        return cq;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <Y extends Comparable<? super Y>> Predicate pastKey(Path<?> keyPath, Class<Y> type, Predicate pastId, boolean ascending, CriteriaBuilder cb) {
+        Expression<Y> keyExpr = (Expression<Y>) keyPath;
+        ParameterExpression<Y> lastKey = cb.parameter(type, P_SEEK_KEY);
+        Predicate pastValue = ascending ? cb.greaterThan(keyExpr, lastKey) : cb.lessThan(keyExpr, lastKey);
+        return cb.or(pastValue, cb.and(cb.equal(keyExpr, lastKey), pastId));
+    }
+
+    private static Object seekKey(String key, String lastKey) {
+        try {
+            return switch (key) {
+                case PRICE -> new BigDecimal(lastKey);
+                case STOCK -> Integer.valueOf(lastKey);
+                default -> lastKey;
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private List<Predicate> predicates(DishFilterValues.Shape shape, CriteriaBuilder cb, Root<Dish> root, Join<Dish, DishCode> codeJoin) {
+        List<Predicate> predicates = new ArrayList<>();
+        // only active
+        predicates.add(cb.isNull(root.get("inactivatedDate")));
+
+        if (shape.id())
+            predicates.add(cb.equal(root.get("id"), cb.parameter(Long.class, P_ID)));
+        if (shape.name())
+            predicates.add(cb.like(cb.lower(root.get("name")), cb.parameter(String.class, P_NAME)));
+        if (shape.description())
+            predicates.add(cb.like(cb.lower(root.get("description")), cb.parameter(String.class, P_DESCRIPTION)));
+        if (shape.price())
+            predicates.add(cb.equal(root.get(PRICE), cb.parameter(BigDecimal.class, P_PRICE)));
+        if (shape.stock())
+            predicates.add(cb.equal(root.get(STOCK), cb.parameter(Integer.class, P_STOCK)));
+        if (shape.codes() > 0) {
+            // one join per query serves the projection, the code filter and the code sort; count queries only join when filtering by code
+            Join<Dish, DishCode> join = codeJoin != null ? codeJoin : root.join(CODE);
+            predicates.add(paddedIn(cb.lower(join.get(CODE)), String.class, P_CODE, shape.codes(), cb));
+        }
+        if (shape.createdFrom())
+            predicates.add(cb.greaterThanOrEqualTo(root.get("createdDate"), cb.parameter(LocalDateTime.class, P_CREATED_FROM)));
+        if (shape.createdTo())
+            predicates.add(cb.lessThanOrEqualTo(root.get("createdDate"), cb.parameter(LocalDateTime.class, P_CREATED_TO)));
+        if (shape.hits() > 0)
+            predicates.add(paddedIn(root.get("id"), Long.class, P_HIT, shape.hits(), cb));
+        return predicates;
+    }
+
+    // One IN list per MAX_IN_LIST parameters, OR'd together past Oracle's limit
+    private static <T> Predicate paddedIn(Expression<T> expression, Class<T> type, String prefix, int size, CriteriaBuilder cb) {
+        List<Predicate> lists = new ArrayList<>();
+        for (int start = 0; start < size; start += DishFilterValues.MAX_IN_LIST) {
+            CriteriaBuilder.In<T> in = cb.in(expression);
+            for (int i = start; i < Math.min(size, start + DishFilterValues.MAX_IN_LIST); i++)
+                in.value(cb.parameter(type, prefix + i));
+            lists.add(in);
+        }
+        return lists.size() == 1 ? lists.get(0) : cb.or(lists.toArray(new Predicate[0]));
+    }
+
+    private static <T> TypedQuery<T> bind(TypedQuery<T> query, DishFilterValues filter) {
+        if (filter.id() != null) query.setParameter(P_ID, filter.id());
+        if (filter.namePattern() != null) query.setParameter(P_NAME, filter.namePattern());
+        if (filter.descriptionPattern() != null) query.setParameter(P_DESCRIPTION, filter.descriptionPattern());
+        if (filter.price() != null) query.setParameter(P_PRICE, filter.price());
+        if (filter.stock() != null) query.setParameter(P_STOCK, filter.stock());
+        if (filter.createdFrom() != null) query.setParameter(P_CREATED_FROM, filter.createdFrom());
+        if (filter.createdTo() != null) query.setParameter(P_CREATED_TO, filter.createdTo());
+        bindPadded(query, P_CODE, filter.codes());
+        bindPadded(query, P_HIT, filter.hits());
+        return query;
+    }
+
+    private static void bindPadded(TypedQuery<?> query, String prefix, List<?> values) {
+        if (values == null || values.isEmpty()) return;
+        int size = DishFilterValues.bucket(values.size());
+        for (int i = 0; i < size; i++)
+            query.setParameter(prefix + i, values.get(Math.min(i, values.size() - 1)));
+    }
+
+    static Path<?> resolvePath(String property, Root<Dish> root, Join<Dish, DishCode> codeJoin) {
+        switch (property) {
+            case "id":    return root.get("id");
+            case "name":  return root.get("name");
+            case PRICE:   return root.get(PRICE);
+            case STOCK:   return root.get(STOCK);
+            case CODE:  // sort by code text via the shared join
+                return codeJoin.get(CODE);
+            default:
+                // nested code attributes (code.description) reuse the same join too
+                String[] parts = property.split("\\.");
+                Path<?> p = CODE.equals(parts[0]) && parts.length > 1 ? codeJoin : root.get(parts[0]);
+                for (int i = 1; i < parts.length; i++) p = p.get(parts[i]);
+                return p;
+        }
+    }
+
+    private record PageKey(DishFilterValues.Shape shape, Sort sort, DishFields fields) {
+    }
+
+    private record SeekKey(DishFilterValues.Shape shape, String key, Sort.Direction direction, boolean seeking, DishFields fields) {
+    }
+
+}
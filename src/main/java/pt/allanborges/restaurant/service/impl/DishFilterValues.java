@@ -0,0 +1,117 @@
+package pt.allanborges.restaurant.service.impl;
+
+import pt.allanborges.restaurant.model.dtos.DishFilterDTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Parsed values of a {@link DishFilterDTO}. Values are bound as query parameters, only the {@link Shape}
+ * (which filters are present, and the padded size of each IN list) decides the SQL text.
+ */
+record DishFilterValues(Long id,
+                        String namePattern,
+                        String descriptionPattern,
+                        BigDecimal price,
+                        Integer stock,
+                        List<String> codes,
+                        LocalDateTime createdFrom,
+                        LocalDateTime createdTo,
+                        List<Long> hits) {
+
+    // Oracle rejects IN lists with more than 1000 expressions
+    static final int MAX_IN_LIST = 1000;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    /**
+     * @param hits ids matched by the full-text search, or null when the filter has no search
+     */
+    static DishFilterValues of(DishFilterDTO filter, List<Long> hits) {
+        return new DishFilterValues(
+                hasText(filter.getId()) ? Long.valueOf(filter.getId()) : null,
+                likePattern(filter.getName()),
+                likePattern(filter.getDescription()),
+                hasText(filter.getPrice()) ? new BigDecimal(filter.getPrice()) : null,
+                hasText(filter.getStock()) ? Integer.valueOf(filter.getStock()) : null,
+                codes(filter.getCode()),
+                filter.getCreatedDateFrom() != null ? parseDate(filter.getCreatedDateFrom()).atStartOfDay() : null,
+                filter.getCreatedDateTo() != null ? parseDate(filter.getCreatedDateTo()).atTime(LocalTime.MAX) : null,
+                hits);
+    }
+
+    Shape shape() {
+        return new Shape(id != null, namePattern != null, descriptionPattern != null, price != null, stock != null,
+                bucket(codes.size()), createdFrom != null, createdTo != null, hits == null ? 0 : bucket(hits.size()));
+    }
+
+    /** A search that matched nothing can only produce an empty result, there is no need to ask the database. */
+    boolean matchesNothing() {
+        return hits != null && hits.isEmpty();
+    }
+
+    /** Only the full-text search narrows the result; every ranked hit that is still active matches. */
+    boolean searchOnly() {
+        return hits != null && id == null && namePattern == null && descriptionPattern == null && price == null
+                && stock == null && codes.isEmpty() && createdFrom == null && createdTo == null;
+    }
+
+    /**
+     * Rounds an IN list size up to the next power of two (capped at Oracle's limit), so a handful of
+     * statement texts covers every list size. Longer lists, which only search hits can be, are rounded up to
+     * whole lists of {@link #MAX_IN_LIST} that the query ORs together. The extra slots repeat the last value.
+     */
+    static int bucket(int size) {
+        if (size <= 1) return size;
+        if (size > MAX_IN_LIST) return (size + MAX_IN_LIST - 1) / MAX_IN_LIST * MAX_IN_LIST;
+        int padded = Integer.highestOneBit(size - 1) << 1;
+        return Math.min(padded, MAX_IN_LIST);
+    }
+
+    /** @throws IllegalArgumentException for more distinct codes than one IN list can hold */
+    private static List<String> codes(List<String> rawCodes) {
+        if (rawCodes == null) return List.of();
+        // split commas, trim, distinct; matched against lower(code)
+        List<String> codes = rawCodes.stream()
+                .filter(Objects::nonNull)
+                .flatMap(s -> Arrays.stream(s.split(",")))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(String::toLowerCase)
+                .distinct()
+                .toList();
+        if (codes.size() > MAX_IN_LIST)
+            throw new IllegalArgumentException("At most " + MAX_IN_LIST + " dish codes can be filtered at once");
+        return codes;
+    }
+
+    private static String likePattern(String value) {
+        return hasText(value) ? "%" + value.toLowerCase() + "%" : null;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private static LocalDate parseDate(String date) {
+        return LocalDate.parse(date, DATE_FORMAT);
+    }
+
+    /** Which filters are set; one compiled query per shape. */
+    record Shape(boolean id,
+                 boolean name,
+                 boolean description,
+                 boolean price,
+                 boolean stock,
+                 int codes,
+                 boolean createdFrom,
+                 boolean createdTo,
+                 int hits) {
+    }
+
+}
@@ -0,0 +1,99 @@
+package pt.allanborges.restaurant.service.impl;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import pt.allanborges.restaurant.model.dtos.DishCodeDTO;
+import pt.allanborges.restaurant.model.dtos.DishDTO;
+import pt.allanborges.restaurant.model.dtos.DishFields;
+import pt.allanborges.restaurant.model.entities.Dish;
+import pt.allanborges.restaurant.model.entities.DishCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column list and row mapping of the read-only dish listings. Rows are selected as
+ * tuples straight into DTOs, so no managed {@link Dish} is hydrated on the read path.
+ * Only the columns of the requested {@link DishFields} are selected.
+ */
+final class DishProjection {
+
+    // dish attributes double as tuple aliases
+    private static final List<String> DISH_COLUMNS = List.of(
+            "id", "name", "description", "price", "stock", "imageUrl",
+            "createdBy", "createdDate", "updatedBy", "updatedDate", "inactivatedBy", "inactivatedDate");
+
+    private DishProjection() {
+    }
+
+    static List<Selection<?>> selections(Root<Dish> root, Join<Dish, DishCode> code, DishFields fields) {
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String field : DISH_COLUMNS)
+            if (fields.includes(field)) selections.add(root.get(field).alias(field));
+        if (fields.includes("code")) {
+            selections.addAll(List.of(
+                    code.get("id").alias("codeId"),
+                    code.get("code").alias("codeCode"),
+                    code.get("description").alias("codeDescription"),
+                    code.get("createdBy").alias("codeCreatedBy"),
+                    code.get("createdDate").alias("codeCreatedDate"),
+                    code.get("updatedBy").alias("codeUpdatedBy"),
+                    code.get("updatedDate").alias("codeUpdatedDate"),
+                    code.get("inactivatedBy").alias("codeInactivatedBy"),
+                    code.get("inactivatedDate").alias("codeInactivatedDate")));
+        }
+        return selections;
+    }
+
+    /** Maps rows in order; dishes sharing a code also share its DTO. Fields left out of the select stay null. */
+    static List<DishDTO> toDTOs(List<Tuple> rows, DishFields fields) {
+        Map<Long, DishCodeDTO> codes = new HashMap<>();
+        List<DishDTO> dishes = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            DishCodeDTO code = fields.includes("code")
+                    ? codes.computeIfAbsent(row.get("codeId", Long.class), id -> toCodeDTO(id, row))
+                    : null;
+            dishes.add(DishDTO.builder()
+                    .id(row.get("id", Long.class))
+                    .name(get(row, fields, "name", String.class))
+                    .description(get(row, fields, "description", String.class))
+                    .price(get(row, fields, "price", BigDecimal.class))
+                    .stock(get(row, fields, "stock", Integer.class))
+                    .imageUrl(get(row, fields, "imageUrl", String.class))
+                    .code(code)
+                    .createdBy(get(row, fields, "createdBy", String.class))
+                    .createdDate(get(row, fields, "createdDate", LocalDateTime.class))
+                    .updatedBy(get(row, fields, "updatedBy", String.class))
+                    .updatedDate(get(row, fields, "updatedDate", LocalDateTime.class))
+                    .inactivatedBy(get(row, fields, "inactivatedBy", String.class))
+                    .inactivatedDate(get(row, fields, "inactivatedDate", LocalDateTime.class))
+                    .build());
+        }
+        return dishes;
+    }
+
+    private static <T> T get(Tuple row, DishFields fields, String field, Class<T> type) {
+        return fields.includes(field) ? row.get(field, type) : null;
+    }
+
+    private static DishCodeDTO toCodeDTO(Long id, Tuple row) {
+        return DishCodeDTO.builder()
+                .id(id)
+                .code(row.get("codeCode", String.class))
+                .description(row.get("codeDescription", String.class))
+                .createdBy(row.get("codeCreatedBy", String.class))
+                .createdDate(row.get("codeCreatedDate", LocalDateTime.class))
+                .updatedBy(row.get("codeUpdatedBy", String.class))
+                .updatedDate(row.get("codeUpdatedDate", LocalDateTime.class))
+                .inactivatedBy(row.get("codeInactivatedBy", String.class))
+                .inactivatedDate(row.get("codeInactivatedDate", LocalDateTime.class))
+                .build();
+    }
+
+}
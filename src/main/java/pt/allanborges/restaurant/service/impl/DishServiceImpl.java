@@ -1,32 +1,71 @@
 package pt.allanborges.restaurant.service.impl;
 
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
-import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.allanborges.restaurant.controller.handlers.exceptions.InsufficientStockException;
 import pt.allanborges.restaurant.controller.handlers.exceptions.ResourceNotFoundException;
+import pt.allanborges.restaurant.model.dtos.CursorPageDTO;
+import pt.allanborges.restaurant.model.dtos.DishChangesDTO;
+import pt.allanborges.restaurant.model.dtos.DishCodeDTO;
 import pt.allanborges.restaurant.model.dtos.DishDTO;
+import pt.allanborges.restaurant.model.dtos.DishFacetsDTO;
+import pt.allanborges.restaurant.model.dtos.DishFields;
 import pt.allanborges.restaurant.model.dtos.DishFilterDTO;
+import pt.allanborges.restaurant.model.dtos.DishImageDTO;
+import pt.allanborges.restaurant.model.dtos.StockReservationDTO;
 import pt.allanborges.restaurant.model.entities.Dish;
 import pt.allanborges.restaurant.model.entities.DishCode;
+import pt.allanborges.restaurant.model.mapper.DishCodeMapper;
 import pt.allanborges.restaurant.model.mapper.DishMapper;
+import pt.allanborges.restaurant.repository.DishCodeRepository;
 import pt.allanborges.restaurant.repository.DishRepository;
 import pt.allanborges.restaurant.service.DishCodeService;
 import pt.allanborges.restaurant.service.DishService;
-
+import pt.allanborges.restaurant.service.catalog.DishCatalog;
+import pt.allanborges.restaurant.service.catalog.DishChangedEvent;
+import pt.allanborges.restaurant.service.catalog.EncodedMenu;
+import pt.allanborges.restaurant.service.image.DishImageStore;
+import pt.allanborges.restaurant.service.stock.DishStockAllotments;
+import pt.allanborges.restaurant.service.stock.DishStockOverwrittenEvent;
+
+import java.io.InputStream;
 import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Log4j2
 @AllArgsConstructor
@@ -35,188 +74,442 @@ public class DishServiceImpl implements DishService {
 
     private static final String PRICE = "price";
     private static final String STOCK = "stock";
+    private static final String CODE = "code";
+    private static final Set<String> SEEK_KEYS = Set.of("id", "name", PRICE, STOCK, CODE);
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int MAX_WRITE_ATTEMPTS = 2;
+    private static final DishFields ID_ONLY = new DishFields(Set.of("id"));
+    private static final String IMAGES_PATH = "/v1/dishes/images/";
+    // UPDATED_DATE is stamped when a row is written, not when it commits: the changes feed stops behind the database
+    // clock by the longest a write transaction may stay open, plus a margin for the JVM clock auditing stamps with
+    private static final Duration CHANGES_LAG = Duration.ofSeconds(WRITE_TIMEOUT_SECONDS).plusSeconds(30);
 
     private final DishRepository dishRepository;
     private final DishMapper dishMapper;
+    private final DishCodeRepository dishCodeRepository;
+    private final DishCodeMapper dishCodeMapper;
     private final DishCodeService dishCodeService;
+    private final DishCatalog dishCatalog;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final DishFilterQueries dishFilterQueries;
+    private final DishStockAllotments stockAllotments;
+    private final DishImageStore dishImageStore;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    // A new code is inserted in the dish transaction, so it rolls back with a failed dish write
     @Override
-    @Transactional
     public DishDTO createDish(final DishDTO dto) {
-        Dish entity = dishMapper.toEntity(dto);
         var codeDto = dto.getCode();
         if (codeDto == null || codeDto.getCode() == null || codeDto.getCode().isBlank())
             throw new IllegalArgumentException("Dish code is required");
 
-        var code = dishCodeService.resolveOrCreate(codeDto.getCode(), codeDto.getDescription());
-        entity.setCode(code);
-        return dishMapper.toDTO(dishRepository.save(entity));
+        return writeWithCodes(() -> {
+            Dish entity = dishMapper.toEntity(dto);
+            entity.setCode(dishCodeService.resolveOrCreate(codeDto.getCode(), codeDto.getDescription()));
+            Dish saved = dishRepository.save(entity);
+            eventPublisher.publishEvent(new DishChangedEvent(saved.getId(), DishChangedEvent.Change.CREATED));
+            return dishMapper.toDTO(saved);
+        });
     }
 
+    @Override
     public List<DishDTO> findAllDishes() {
-        var active = dishRepository.findByInactivatedDateIsNull();
-        return dishMapper.toDTOList(active);
+        return dishCatalog.get(this::loadActiveDishes).dishes();
+    }
+
+    @Override
+    public Optional<EncodedMenu> findAllDishesEncoded() {
+        return Optional.ofNullable(dishCatalog.get(this::loadActiveDishes).menu());
     }
 
     @Override
     public DishDTO getDishById(final Long id) {
-        Dish dish = dishRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Dish not found. Id: " + id));
-        return dishMapper.toDTO(dish);
+        // the catalog only holds active dishes, inactive ones still come from the database
+        return dishCatalog.get(this::loadActiveDishes).findById(id)
+                .orElseGet(() -> dishMapper.toDTO(dishRepository.findWithCodeById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Dish not found. Id: " + id))));
+    }
+
+    // Only runs when the catalog is cold, so cache hits never open a transaction
+    private List<DishDTO> loadActiveDishes() {
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        return readOnlyTx.execute(status -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+            Root<Dish> root = cq.from(Dish.class);
+            cq.multiselect(DishProjection.selections(root, root.join(CODE), DishFields.ALL))
+                    .where(cb.isNull(root.get("inactivatedDate")));
+            List<DishDTO> dishes = DishProjection.toDTOs(readOnly(entityManager.createQuery(cq)).getResultList(), DishFields.ALL);
+            // the row only holds what no allotment has claimed yet
+            Map<Long, Integer> held = stockAllotments.heldUnits();
+            if (!held.isEmpty())
+                dishes.forEach(dish -> dish.setStock(dish.getStock() + held.getOrDefault(dish.getId(), 0)));
+            return dishes;
+        });
     }
 
     @Override
-    @Transactional
     public DishDTO updateDish(final Long id, final DishDTO dto) {
-        Dish current = dishRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Dish not found. Id: " + id));
-        dishMapper.updateEntityFromDTO(dto, current);
-        if (dto.getCode() != null && dto.getCode().getCode() != null && !dto.getCode().getCode().isBlank()) {
-            var code = dishCodeService.resolveOrCreate(dto.getCode().getCode(), dto.getCode().getDescription());
-            current.setCode(code);
+        return writeWithCodes(() -> {
+            Dish current = dishRepository.findWithCodeById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Dish not found. Id: " + id));
+            dishMapper.updateEntityFromDTO(dto, current);
+            if (dto.getCode() != null && dto.getCode().getCode() != null && !dto.getCode().getCode().isBlank())
+                current.setCode(dishCodeService.resolveOrCreate(dto.getCode().getCode(), dto.getCode().getDescription()));
+            Dish saved = dishRepository.save(current);
+            eventPublisher.publishEvent(new DishChangedEvent(saved.getId()));
+            if (dto.getStock() != null)
+                eventPublisher.publishEvent(new DishStockOverwrittenEvent(saved.getId()));
+            return dishMapper.toDTO(saved);
+        });
+    }
+
+    // One code lookup, one dish lookup and batched INSERT/UPDATE statements for the whole menu change
+    @Override
+    public List<DishDTO> upsertDishes(final List<DishDTO> dtos) {
+        log.info("Upserting {} dishes", dtos.size());
+        List<DishCodeDTO> referencedCodes = dtos.stream()
+                .map(DishDTO::getCode)
+                .filter(c -> c != null && c.getCode() != null && !c.getCode().isBlank())
+                .toList();
+        return writeWithCodes(() -> saveAll(dtos, dishCodeService.resolveOrCreateAll(referencedCodes)));
+    }
+
+    private List<DishDTO> saveAll(List<DishDTO> dtos, Map<String, DishCode> codes) {
+        Set<Long> ids = dtos.stream().map(DishDTO::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, Dish> existing = ids.isEmpty() ? Map.of()
+                : dishRepository.findWithCodeByIdIn(ids).stream().collect(Collectors.toMap(Dish::getId, Function.identity()));
+
+        List<Dish> dishes = new ArrayList<>(dtos.size());
+        for (DishDTO dto : dtos) {
+            Dish dish;
+            if (dto.getId() == null) {
+                dish = dishMapper.toEntity(dto);
+            } else {
+                dish = existing.get(dto.getId());
+                if (dish == null) throw new ResourceNotFoundException("Dish not found. Id: " + dto.getId());
+                dishMapper.updateEntityFromDTO(dto, dish);
+            }
+            if (dto.getCode() != null && dto.getCode().getCode() != null && !dto.getCode().getCode().isBlank())
+                dish.setCode(codes.get(dto.getCode().getCode().trim().toUpperCase()));
+            if (dish.getCode() == null)
+                throw new IllegalArgumentException("Dish code is required");
+            dishes.add(dish);
+        }
+
+        List<Dish> saved = dishRepository.saveAll(dishes);
+        dishRepository.flush();
+        eventPublisher.publishEvent(new DishChangedEvent(null));
+        eventPublisher.publishEvent(new DishStockOverwrittenEvent(null));
+        return dishMapper.toDTOList(saved);
+    }
+
+    // Never a read-modify-write: either a local allotment or one conditional UPDATE on the row
+    @Override
+    public StockReservationDTO reserveStock(final Long dishId, final int quantity) {
+        if (quantity <= 0)
+            throw new IllegalArgumentException("Quantity must be > 0");
+        if (!stockAllotments.tryReserve(dishId, quantity)) {
+            if (dishRepository.decrementStock(dishId, quantity) == 0)
+                throw dishRepository.existsByIdAndInactivatedDateIsNull(dishId)
+                        ? new InsufficientStockException("Not enough stock for dish " + dishId + ". Requested: " + quantity)
+                        : new ResourceNotFoundException("Dish not found. Id: " + dishId);
+            eventPublisher.publishEvent(new DishChangedEvent(dishId, DishChangedEvent.Change.STOCK));
         }
-        return dishMapper.toDTO(dishRepository.save(current));
+        return StockReservationDTO.builder().dishId(dishId).quantity(quantity).build();
     }
 
     @Override
-    @Transactional
+    public StockReservationDTO releaseStock(final Long dishId, final int quantity) {
+        if (quantity <= 0)
+            throw new IllegalArgumentException("Quantity must be > 0");
+        if (dishRepository.incrementActiveStock(dishId, quantity) == 0)
+            throw new ResourceNotFoundException("Dish not found. Id: " + dishId);
+        eventPublisher.publishEvent(new DishChangedEvent(dishId, DishChangedEvent.Change.STOCK));
+        return StockReservationDTO.builder().dishId(dishId).quantity(quantity).build();
+    }
+
+    // The upload is written to disk before any transaction starts; only the imageUrl update touches the row
+    @Override
+    public DishImageDTO storeDishImage(final Long dishId, final InputStream content, final String contentType) {
+        if (!dishRepository.existsById(dishId))
+            throw new ResourceNotFoundException("Dish not found. Id: " + dishId);
+        DishImageStore.StoredImage image = dishImageStore.store(content, contentType);
+        String imageUrl = IMAGES_PATH + image.fileName();
+
+        writeTx().executeWithoutResult(status -> {
+            Dish dish = dishRepository.findById(dishId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Dish not found. Id: " + dishId));
+            dish.setImageUrl(imageUrl);
+            eventPublisher.publishEvent(new DishChangedEvent(dishId));
+        });
+        return DishImageDTO.builder()
+                .dishId(dishId)
+                .imageUrl(imageUrl)
+                .thumbnailUrl(image.thumbnailFileName() == null ? null : IMAGES_PATH + image.thumbnailFileName())
+                .size(image.size())
+                .build();
+    }
+
+    @Override
+    public Optional<Path> findDishImage(final String fileName) {
+        return dishImageStore.find(fileName);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<DishDTO> findAllDishesPaginatedWithFilters(final Integer page,
                                                            final Integer size,
                                                            final String sort,
                                                            final String orderBy,
                                                            final DishFilterDTO filter) {
         log.info("Returning paginated DishDTO list with filters");
+        if (hasSearch(filter) && (orderBy == null || orderBy.isBlank()))
+            return findAllDishesByRelevance(filter, PageRequest.of(page, size));
+
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.fromString(sort), orderBy));
-        Page<DishDTO> response = findAllDishesWithFilters(filter, pageable).map(dishMapper::toDTO);
-        return new PageImpl<>(response.getContent(), pageable, response.getTotalElements());
+        return findAllDishesWithFilters(filter, pageable);
     }
 
-    // --------- Criteria filtering ----------
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<DishDTO> findAllDishesWithCursor(final String cursor,
+                                                          final Integer size,
+                                                          final String sort,
+                                                          final String orderBy,
+                                                          final DishFilterDTO filter) {
+        if (size == null || size < 1)
+            throw new IllegalArgumentException("Page size must be greater than zero");
+
+        // a continuation token carries its own ordering, only the first page takes it from the request
+        DishCursor after = (cursor == null || cursor.isBlank()) ? null : DishCursor.decode(cursor);
+        String key = after != null ? after.orderBy() : (orderBy == null || orderBy.isBlank() ? "id" : orderBy);
+        Sort.Direction direction = after != null ? after.direction() : Sort.Direction.fromString(sort);
+        if (!SEEK_KEYS.contains(key))
+            throw new IllegalArgumentException("Cursor pagination can only order by " + SEEK_KEYS);
+
+        log.info("Returning DishDTO slice after cursor ordered by {} {}", key, direction);
+        DishFilterValues values = filterValues(filter);
+        // the next cursor is built from the key of the last row, so it is selected whatever fields were asked for
+        DishFields fields = DishFields.parse(filter.getFields()).with(key);
+        List<DishDTO> rows = values.matchesNothing() ? List.of() : findDishesAfter(values, key, direction, after, fields, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<DishDTO> slice = hasNext ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            DishDTO last = slice.get(slice.size() - 1);
+            nextCursor = new DishCursor(key, direction, last.getId(), seekValue(key, last)).encode();
+        }
+        return CursorPageDTO.<DishDTO>builder()
+                .content(slice)
+                .size(slice.size())
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
 
-    @Transactional
-    public Page<Dish> findAllDishesWithFilters(DishFilterDTO filter, Pageable pageable) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    // Code counts, price histogram and availability for the same filters as /paged, folded from one grouped query
+    @Override
+    @Transactional(readOnly = true)
+    public DishFacetsDTO findDishFacets(final DishFilterDTO filter) {
+        log.info("Returning dish facets with filters");
+        DishFilterValues values = filterValues(filter);
+        List<BigDecimal> bounds = dishFilterQueries.priceBounds();
+        Map<String, Long> perCode = new TreeMap<>();
+        long[] perBucket = new long[bounds.size() + 1];
+        long inStock = 0;
+        long total = 0;
+
+        List<Tuple> groups = values.matchesNothing() ? List.of() : readOnly(dishFilterQueries.facets(values)).getResultList();
+        for (Tuple group : groups) {
+            long count = group.get(DishFilterQueries.F_COUNT, Long.class);
+            perCode.merge(group.get(DishFilterQueries.F_CODE, String.class), count, Long::sum);
+            perBucket[group.get(DishFilterQueries.F_PRICE_BUCKET, Integer.class)] += count;
+            if (group.get(DishFilterQueries.F_IN_STOCK, Integer.class) == 1) inStock += count;
+            total += count;
+        }
 
+        List<DishFacetsDTO.PriceBucket> prices = new ArrayList<>(perBucket.length);
+        for (int i = 0; i < perBucket.length; i++) {
+            prices.add(DishFacetsDTO.PriceBucket.builder()
+                    .from(i == 0 ? null : bounds.get(i - 1))
+                    .to(i == bounds.size() ? null : bounds.get(i))
+                    .count(perBucket[i])
+                    .build());
+        }
+        return DishFacetsDTO.builder()
+                .total(total)
+                .codes(perCode.entrySet().stream()
+                        .map(e -> DishFacetsDTO.CodeCount.builder().code(e.getKey()).count(e.getValue()).build())
+                        .toList())
+                .prices(prices)
+                .inStock(inStock)
+                .outOfStock(total - inStock)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DishChangesDTO findChangesSince(final LocalDateTime since) {
+        if (since == null)
+            throw new IllegalArgumentException("since is required");
+        LocalDateTime watermark = databaseNow().minus(CHANGES_LAG);
+        if (!watermark.isAfter(since))
+            return DishChangesDTO.builder().since(since).watermark(since).dishes(List.of()).codes(List.of()).build();
+
+        List<DishDTO> dishes = dishMapper.toDTOList(dishRepository.findChangedBetween(since, watermark));
+        List<DishCodeDTO> codes = dishCodeMapper.toDTOList(dishCodeRepository.findChangedBetween(since, watermark));
+        log.info("Returning {} dish and {} code changes between {} and {}", dishes.size(), codes.size(), since, watermark);
+        return DishChangesDTO.builder()
+                .since(since)
+                .watermark(watermark)
+                .dishes(dishes)
+                .codes(codes)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllDishes(final Consumer<DishDTO> consumer) {
+        log.info("Exporting all dishes");
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Dish> cq = cb.createQuery(Dish.class);
         Root<Dish> root = cq.from(Dish.class);
-        List<Predicate> predicates = buildPredicates(filter, cb, root);
-        cq.where(predicates.toArray(new Predicate[0]));
-
-        if (pageable.getSort().isSorted()) {
-            cq.orderBy(getOrderList(pageable, cb, root));
+        root.fetch(CODE);
+        cq.orderBy(cb.asc(root.get("id")));
+
+        // forward-only cursor: rows are pulled from Oracle in fetch-size chunks and detached as we go. A full export
+        // neither reads nor fills the second-level cache, which would otherwise evict the dishes actually being served
+        try (Stream<Dish> dishes = readOnly(entityManager.createQuery(cq))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS)
+                .setHint(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.BYPASS)
+                .getResultStream()) {
+            Iterator<Dish> it = dishes.iterator();
+            int exported = 0;
+            while (it.hasNext()) {
+                consumer.accept(dishMapper.toDTO(it.next()));
+                if (++exported % EXPORT_FETCH_SIZE == 0)
+                    entityManager.clear();
+            }
+            log.info("Exported {} dishes", exported);
         }
+    }
 
-        List<Dish> result = entityManager.createQuery(cq)
-                .setFirstResult((int) pageable.getOffset())
-                .setMaxResults(pageable.getPageSize())
-                .getResultList();
+    // Every text match is ranked. The other filters are applied to all of them by one id-only query, so the total
+    // is exact, and rows are only read for the ids of the requested page
+    private Page<DishDTO> findAllDishesByRelevance(DishFilterDTO filter, Pageable pageable) {
+        List<Long> ranked = searchHits(filter.getQ());
+        if (ranked.isEmpty()) return Page.empty(pageable);
+
+        DishFilterValues values = DishFilterValues.of(filter, ranked);
+        List<Long> matched = values.searchOnly() ? ranked : filteredInRankOrder(values, ranked);
+        int from = (int) Math.min(pageable.getOffset(), matched.size());
+        int to = Math.min(from + pageable.getPageSize(), matched.size());
+        List<Long> pageIds = matched.subList(from, to);
+        List<DishDTO> content = pageIds.isEmpty() ? List.of()
+                : rankedRows(DishFilterValues.of(filter, pageIds), pageIds, DishFields.parse(filter.getFields()));
+        return new PageImpl<>(content, pageable, matched.size());
+    }
 
-        long total = getTotalCount(filter, cb);
-        return new PageImpl<>(result, pageable, total);
-    }
-
-    private List<Predicate> buildPredicates(DishFilterDTO filter, CriteriaBuilder cb, Root<Dish> root) {
-        List<Predicate> predicates = new ArrayList<>();
-        // only active
-        predicates.add(cb.isNull(root.get("inactivatedDate")));
-
-        addEqualPredicateForLong(filter.getId(), root.get("id"), cb, predicates);
-        addLikePredicate(filter.getName(), root.get("name"), cb, predicates);
-        addLikePredicate(filter.getDescription(), root.get("description"), cb, predicates);
-        addEqualPredicateForBigDecimal(filter.getPrice(), root.get(PRICE), cb, predicates);
-        addEqualPredicateForInteger(filter.getStock(), root.get(STOCK), cb, predicates);
-        addInPredicateForCodes(filter.getCode(), root, cb, predicates);
-        addDateRangePredicate(filter.getCreatedDateFrom(), filter.getCreatedDateTo(), cb, root.get("createdDate"), predicates);
-        return predicates;
-    }
-
-    private void addInPredicateForCodes(List<String> rawCodes,
-                                        Root<Dish> root,
-                                        CriteriaBuilder cb,
-                                        List<Predicate> predicates) {
-        if (rawCodes == null || rawCodes.isEmpty()) return;
-
-        // Normalize: split commas, trim, uppercase, distinct
-        List<String> codes = rawCodes.stream()
-                .filter(Objects::nonNull)
-                .flatMap(s -> Arrays.stream(s.split(",")))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .map(String::toUpperCase)
-                .distinct()
-                .toList();
+    private List<Long> filteredInRankOrder(DishFilterValues values, List<Long> ranked) {
+        Set<Long> passing = readOnly(dishFilterQueries.page(values, Sort.unsorted(), ID_ONLY)).getResultList().stream()
+                .map(row -> row.get("id", Long.class))
+                .collect(Collectors.toSet());
+        return ranked.stream().filter(passing::contains).toList();
+    }
 
-        if (codes.isEmpty()) return;
+    // Ranking the rows of one page in memory is cheap and keeps the index order
+    private List<DishDTO> rankedRows(DishFilterValues values, List<Long> ranked, DishFields fields) {
+        TypedQuery<Tuple> query = dishFilterQueries.page(values, Sort.unsorted(), fields);
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ranked.size(); i++) rank.put(ranked.get(i), i);
+        List<DishDTO> rows = new ArrayList<>(DishProjection.toDTOs(readOnly(query).getResultList(), fields));
+        rows.sort(Comparator.comparing(dish -> rank.get(dish.getId())));
+        return rows;
+    }
 
-        Join<Dish, DishCode> codeJoin = root.join("code");
-        CriteriaBuilder.In<String> in = cb.in(cb.lower(codeJoin.get("code")));
-        codes.forEach(c -> in.value(c.toLowerCase()));
-        predicates.add(in);
+    private boolean hasSearch(DishFilterDTO filter) {
+        return filter.getQ() != null && !filter.getQ().isBlank();
     }
 
-    private void addEqualPredicateForLong(String value, Path<Long> path, CriteriaBuilder cb, List<Predicate> predicates) {
-        if (value != null && !value.isEmpty()) predicates.add(cb.equal(path, Long.valueOf(value)));
+    // Uncapped: hit lists longer than one IN list are bound as several, so totals and facets count every match
+    private List<Long> searchHits(String query) {
+        return dishCatalog.get(this::loadActiveDishes).search(query, Integer.MAX_VALUE);
     }
 
-    private void addLikePredicate(String value, Path<String> path, CriteriaBuilder cb, List<Predicate> predicates) {
-        if (value != null && !value.isEmpty()) predicates.add(cb.like(cb.lower(path), "%" + value.toLowerCase() + "%"));
+    private DishFilterValues filterValues(DishFilterDTO filter) {
+        return DishFilterValues.of(filter, hasSearch(filter) ? searchHits(filter.getQ()) : null);
     }
 
-    private void addEqualPredicateForBigDecimal(String value, Path<BigDecimal> path, CriteriaBuilder cb, List<Predicate> predicates) {
-        if (value != null && !value.isEmpty()) predicates.add(cb.equal(path, new BigDecimal(value)));
+    // --------- Criteria filtering ----------
+
+    @Transactional(readOnly = true)
+    public Page<DishDTO> findAllDishesWithFilters(DishFilterDTO filter, Pageable pageable) {
+        DishFilterValues values = filterValues(filter);
+        if (values.matchesNothing()) return Page.empty(pageable);
+
+        DishFields fields = DishFields.parse(filter.getFields());
+        List<Tuple> result = readOnly(dishFilterQueries.page(values, pageable.getSort(), fields))
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        long total = readOnly(dishFilterQueries.count(values)).getSingleResult();
+        return new PageImpl<>(DishProjection.toDTOs(result, fields), pageable, total);
     }
 
-    private void addEqualPredicateForInteger(String value, Path<Integer> path, CriteriaBuilder cb, List<Predicate> predicates) {
-        if (value != null && !value.isEmpty()) predicates.add(cb.equal(path, Integer.valueOf(value)));
+    private List<DishDTO> findDishesAfter(DishFilterValues filter, String key, Sort.Direction direction, DishCursor after,
+                                          DishFields fields, int limit) {
+        return DishProjection.toDTOs(readOnly(dishFilterQueries.seek(filter, key, direction, after, fields))
+                .setMaxResults(limit)
+                .getResultList(), fields);
     }
 
-    private List<Order> getOrderList(Pageable pageable, CriteriaBuilder cb, Root<Dish> root) {
-        List<Order> orders = new ArrayList<>();
-        pageable.getSort().forEach(order -> {
-            String prop = order.getProperty();
-            Path<?> p = resolvePath(prop, root);
-            if (p != null) orders.add(order.isAscending() ? cb.asc(p) : cb.desc(p));
-        });
-        return orders;
-    }
-
-    private Path<?> resolvePath(String property, Root<Dish> root) {
-        switch (property) {
-            case "id":    return root.get("id");
-            case "name":  return root.get("name");
-            case PRICE:   return root.get(PRICE);
-            case STOCK:   return root.get(STOCK);
-            case "code":  // sort by code text via join
-                return root.join("code").get("code");
-            default:
-                Path<?> p = root;
-                for (String part : property.split("\\.")) p = p.get(part);
-                return p;
-        }
+    private String seekValue(String key, DishDTO dish) {
+        return switch (key) {
+            case "name" -> dish.getName();
+            case PRICE -> dish.getPrice().toPlainString();
+            case STOCK -> dish.getStock().toString();
+            case CODE -> dish.getCode().getCode();
+            default -> null;
+        };
+    }
+
+    private TransactionTemplate writeTx() {
+        TransactionTemplate writeTx = new TransactionTemplate(transactionManager);
+        writeTx.setTimeout(WRITE_TIMEOUT_SECONDS);
+        return writeTx;
     }
 
-    private void addDateRangePredicate(String dateFrom, String dateTo, CriteriaBuilder cb, Path<LocalDateTime> path, List<Predicate> predicates) {
-        if (dateFrom != null && dateTo == null)
-            predicates.add(cb.greaterThanOrEqualTo(path, parseDate(dateFrom).atStartOfDay()));
-        else if (dateFrom == null && dateTo != null)
-            predicates.add(cb.lessThanOrEqualTo(path, parseDate(dateTo).atTime(LocalTime.MAX)));
-        else if (dateFrom != null)
-            predicates.add(cb.between(path, parseDate(dateFrom).atStartOfDay(), parseDate(dateTo).atTime(LocalTime.MAX)));
+    // Two writers creating the same new code race on its unique index: the loser's transaction is rolled back, and
+    // one more attempt finds the code the winner committed. Inside a caller's transaction there is nothing to retry
+    private <T> T writeWithCodes(Supplier<T> write) {
+        boolean ownTransaction = !TransactionSynchronizationManager.isActualTransactionActive();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return writeTx().execute(status -> write.get());
+            } catch (DataIntegrityViolationException e) {
+                if (!ownTransaction || attempt == MAX_WRITE_ATTEMPTS) throw e;
+                log.debug("Dish write lost a dish code race, retrying", e);
+            }
+        }
     }
 
-    private LocalDate parseDate(String date) {
-        return LocalDate.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+    // Stock statements stamp UPDATED_DATE with the database clock, so the watermark has to come from it too
+    private LocalDateTime databaseNow() {
+        return (LocalDateTime) entityManager.createNativeQuery("SELECT LOCALTIMESTAMP FROM DUAL", LocalDateTime.class).getSingleResult();
     }
 
-    private long getTotalCount(DishFilterDTO filter, CriteriaBuilder cb) {
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<Dish> countRoot = countQuery.from(Dish.class);
-        List<Predicate> predicates = buildPredicates(filter, cb, countRoot);
-        countQuery.select(cb.count(countRoot)).where(predicates.toArray(new Predicate[0]));
-        return entityManager.createQuery(countQuery).getSingleResult();
+    // Listings are projections: nothing to dirty-check and nothing worth flushing before they run
+    private static <T> TypedQuery<T> readOnly(TypedQuery<T> query) {
+        return query.setFlushMode(FlushModeType.COMMIT)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
     }
 
-}
\ No newline at end of file
+}
@@ -2,7 +2,10 @@ package pt.allanborges.restaurant.service.impl;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -10,10 +13,14 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import pt.allanborges.restaurant.controller.handlers.exceptions.*;
 import pt.allanborges.restaurant.model.entities.Address;
 import pt.allanborges.restaurant.model.entities.UserAccount;
@@ -22,24 +29,32 @@ import pt.allanborges.restaurant.model.mapper.AddressMapper;
 import pt.allanborges.restaurant.model.mapper.UserAccountMapper;
 import pt.allanborges.restaurant.repository.UserAccountRepository;
 import pt.allanborges.restaurant.security.JwtService;
+import pt.allanborges.restaurant.security.RevokedTokens;
+import pt.allanborges.restaurant.security.UserAccountChangedEvent;
 import pt.allanborges.restaurant.security.dtos.*;
 import pt.allanborges.restaurant.service.UserAccountService;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-public class UserAccountServiceImpl implements UserAccountService, UserDetailsService {
+public class UserAccountServiceImpl implements UserAccountService, UserDetailsService, UserDetailsPasswordService {
 
     @Value("${app.admin.bootstrap-secret}")
     private String adminBootstrapSecret;
 
     private static final String USER_NOT_FOUND = "User not found";
+    private static final String USERNAME_EXISTS = "Username already exists";
+    private static final String EMAIL_EXISTS = "E-mail already exists";
+    private static final String NIF_EXISTS = "NIF already exists";
 
     private final UserAccountRepository userAccountRepository;
     private final PasswordEncoder passwordEncoder;
@@ -47,7 +62,10 @@ public class UserAccountServiceImpl implements UserAccountService, UserDetailsSe
     private final AddressMapper addressMapper;
 
     private final JwtService jwt;
+    private final RevokedTokens revokedTokens;
     private final AuthenticationConfiguration authConfig;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
 
 
     @Override
@@ -88,7 +106,23 @@ public class UserAccountServiceImpl implements UserAccountService, UserDetailsSe
             user.setInactivatedBy(by);
         }
 
-        return userAccountMapper.toDTO(userAccountRepository.save(user));
+        UserAccount saved = userAccountRepository.save(user);
+        eventPublisher.publishEvent(new UserAccountChangedEvent(saved.getUsername()));
+        return userAccountMapper.toDTO(saved);
+    }
+
+    @Override
+    @Transactional
+    public UserResponse revokeTokens(Long id) {
+        UserAccount user = userAccountRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException(USER_NOT_FOUND));
+
+        // iat has whole seconds: rounding up also catches tokens issued earlier in the current second
+        user.setTokensValidAfter(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1));
+
+        UserAccount saved = userAccountRepository.save(user);
+        eventPublisher.publishEvent(new UserAccountChangedEvent(saved.getUsername()));
+        return userAccountMapper.toDTO(saved);
     }
 
 
@@ -107,6 +141,11 @@ public class UserAccountServiceImpl implements UserAccountService, UserDetailsSe
         return new AuthResponse(token);
     }
 
+    @Override
+    public void logout(String token) {
+        jwt.verify(token).ifPresent(principal -> revokedTokens.revoke(principal.tokenId(), principal.expiresAt()));
+    }
+
     private AuthenticationManager resolveAuthManager() {
         try {
             return authConfig.getAuthenticationManager();
@@ -115,67 +154,108 @@ public class UserAccountServiceImpl implements UserAccountService, UserDetailsSe
         }
     }
 
+    // BCrypt may queue behind other hashes on the bounded pool, so it runs while no connection is held: the uniqueness
+    // check and the insert each take one only for their own statements
     @Override
-    @Transactional
     public UserResponse userRegister(RegisterUserRequest req) {
-        userAccountRepository.findByUsername(req.username()).ifPresent(u -> {
-            throw new IllegalArgumentException("Username already exists");
-        });
-        userAccountRepository.findByEmail(req.email()).ifPresent(u -> {
-            throw new IllegalArgumentException("E-mail already exists");
+        // one query settles the common case before paying for BCrypt; the unique constraints settle races
+        requireUnique(req.username(), req.email(), req.nif());
+        String passwordHash = passwordEncoder.encode(req.password());
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            UserAccount userAccount = UserAccount.builder()
+                    .username(req.username())
+                    .passwordHash(passwordHash)
+                    .name(req.name())
+                    .email(req.email())
+                    .nif(req.nif())
+                    .roles(Set.of(Role.CLIENT))
+                    .enabled(false)
+                    .build();
+
+            if (req.addresses() != null && !req.addresses().isEmpty()) {
+                List<Address> addresses = req.addresses().stream()
+                        .map(addressMapper::toEntity)
+                        .toList();
+                userAccount.setAddresses(addresses);
+            }
+
+            userAccount.setInactivatedDate(LocalDateTime.now());
+            userAccount = saveNew(userAccount);
+            // a status cached while the name was still unknown must not outlive the registration
+            eventPublisher.publishEvent(new UserAccountChangedEvent(userAccount.getUsername()));
+            return userAccountMapper.toDTO(userAccount);
         });
-        if (req.nif() != null) {
-            userAccountRepository.findByNif(req.nif()).ifPresent(u -> {
-                throw new IllegalArgumentException("NIF already exists");
-            });
-        }
-
-        UserAccount userAccount = UserAccount.builder()
-                .username(req.username())
-                .passwordHash(passwordEncoder.encode(req.password()))
-                .name(req.name())
-                .email(req.email())
-                .nif(req.nif())
-                .roles(Set.of(Role.CLIENT))
-                .enabled(false)
-                .build();
-
-        if (req.addresses() != null && !req.addresses().isEmpty()) {
-            List<Address> addresses = req.addresses().stream()
-                    .map(addressMapper::toEntity)
-                    .toList();
-            userAccount.setAddresses(addresses);
-        }
-
-        userAccount.setInactivatedDate(LocalDateTime.now());
-        userAccount = userAccountRepository.save(userAccount);
-        return userAccountMapper.toDTO(userAccount);
     }
 
     @Override
-    @Transactional
     public UserResponse registerAdmin(RegisterUserRequest req, String providedSecret) {
         // Validation - admin secret
         validateAdminSecret(providedSecret);
         // Uniqueness check -> 409
         userAccountRepository.findByUsername(req.username()).ifPresent(u -> {
-            throw new UsernameAlreadyExistsException("Username already exists");
+            throw new UsernameAlreadyExistsException(USERNAME_EXISTS);
         });
+        // hashed before the transaction, as in userRegister
+        String passwordHash = passwordEncoder.encode(req.password());
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            // Create ADMIN
+            UserAccount admin = UserAccount.builder()
+                    .username(req.username())
+                    .passwordHash(passwordHash)
+                    .name(req.name())
+                    .email(req.email())
+                    .roles(java.util.Set.of(Role.ADMIN))
+                    .enabled(true)
+                    .build();
+            admin.setInactivatedDate(null);
+            admin.setInactivatedBy(null);
+
+            admin = saveNew(admin);
+            eventPublisher.publishEvent(new UserAccountChangedEvent(admin.getUsername()));
+            return userAccountMapper.toDTO(admin);
+        });
+    }
 
-        // Create ADMIN
-        UserAccount admin = UserAccount.builder()
-                .username(req.username())
-                .passwordHash(passwordEncoder.encode(req.password()))
-                .name(req.name())
-                .email(req.email())
-                .roles(java.util.Set.of(Role.ADMIN))
-                .enabled(true)
-                .build();
-        admin.setInactivatedDate(null);
-        admin.setInactivatedBy(null);
+    private void requireUnique(String username, String email, String nif) {
+        var holders = userAccountRepository.findHoldingAny(username, email, nif);
+        for (var holder : holders)
+            if (holder.getUsername().equals(username)) throw new DuplicateUserException(USERNAME_EXISTS);
+        for (var holder : holders)
+            if (Objects.equals(holder.getEmail(), email)) throw new DuplicateUserException(EMAIL_EXISTS);
+        if (!holders.isEmpty())
+            throw new DuplicateUserException(NIF_EXISTS);
+    }
+
+    // flushes the insert so a concurrent registration of the same values fails here, with its column's message
+    private UserAccount saveNew(UserAccount userAccount) {
+        try {
+            return userAccountRepository.saveAndFlush(userAccount);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateOf(userAccount, e);
+        }
+    }
 
-        admin = userAccountRepository.save(admin);
-        return userAccountMapper.toDTO(admin);
+    private RuntimeException duplicateOf(UserAccount userAccount, DataIntegrityViolationException e) {
+        String constraint = e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null ? violation.getConstraintName() : String.valueOf(e.getMessage());
+        constraint = constraint.toUpperCase(Locale.ROOT);
+        if (constraint.contains("UK_USERS_USERNAME")) return new DuplicateUserException(USERNAME_EXISTS);
+        if (constraint.contains("UK_USERS_EMAIL")) return new DuplicateUserException(EMAIL_EXISTS);
+        if (constraint.contains("UK_USERS_NIF")) return new DuplicateUserException(NIF_EXISTS);
+        // schemas created by ddl-auto carry generated constraint names; the winning row is committed by now, so
+        // the uniqueness check names the column, in a transaction of its own since this one is lost
+        TransactionTemplate newTx = new TransactionTemplate(transactionManager);
+        newTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        newTx.setReadOnly(true);
+        try {
+            newTx.executeWithoutResult(status ->
+                    requireUnique(userAccount.getUsername(), userAccount.getEmail(), userAccount.getNif()));
+        } catch (DuplicateUserException duplicate) {
+            return duplicate;
+        }
+        return e;
     }
 
     private void validateAdminSecret(String providedSecret) {
@@ -209,4 +289,15 @@ public class UserAccountServiceImpl implements UserAccountService, UserDetailsSe
                 .build();
     }
 
-}
\ No newline at end of file
+    // called by the authentication provider after a login whose hash was made with another BCrypt cost
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        var userAccount = userAccountRepository.findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND));
+        userAccount.setPasswordHash(newPassword);
+        userAccountRepository.save(userAccount);
+        return User.withUserDetails(user).password(newPassword).build();
+    }
+
+}
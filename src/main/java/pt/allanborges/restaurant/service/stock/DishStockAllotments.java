@@ -0,0 +1,217 @@
+package pt.allanborges.restaurant.service.stock;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.allanborges.restaurant.repository.DishRepository;
+import pt.allanborges.restaurant.service.DishService;
+import pt.allanborges.restaurant.service.catalog.DishChangedEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Local stock allotments for hot dishes.
+ * <p>
+ * A dish that takes at least {@code app.stock.hot-threshold} reservations within one sweep interval gets an
+ * allotment: units are claimed from DISHES in blocks of {@code app.stock.block-size} with the same conditional
+ * decrement as a single sale, and sales are served from striped in-memory counters without touching the row.
+ * The database stock is always the unclaimed remainder, so nothing can be oversold. Unused units go back to
+ * the row when the dish cools down and on shutdown; a crash leaves them claimed, under-reporting stock
+ * instead of overselling it.
+ * <p>
+ * Sales served from an allotment publish a {@link DishChangedEvent.Change#STOCK} event like any other sale, and
+ * {@link #heldUnits()} lets the catalog show the units claimed but not yet sold as available.
+ * <p>
+ * An absolute stock write replaces whatever was claimed before it, so the allotment is retired and its unsold
+ * units are dropped instead of being added on top of the new value.
+ */
+@Log4j2
+@Component
+public class DishStockAllotments {
+
+    private static final int STRIPES = Math.max(2, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() - 1) << 1);
+
+    private final DishRepository dishRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int hotThreshold;
+    private final int blockSize;
+
+    private final Map<Long, LongAdder> demand = new ConcurrentHashMap<>();
+    private final Map<Long, Allotment> allotments = new ConcurrentHashMap<>();
+
+    public DishStockAllotments(DishRepository dishRepository,
+                               PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${app.stock.hot-threshold}") int hotThreshold,
+                               @Value("${app.stock.block-size}") int blockSize) {
+        this.dishRepository = dishRepository;
+        this.transactionManager = transactionManager;
+        this.eventPublisher = eventPublisher;
+        this.hotThreshold = hotThreshold;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Records demand for the dish and serves the quantity from its allotment when it has one.
+     *
+     * @return false when the caller has to decrement the row itself
+     */
+    public boolean tryReserve(Long dishId, int quantity) {
+        demand.computeIfAbsent(dishId, id -> new LongAdder()).increment();
+        Allotment allotment = allotments.get(dishId);
+        if (allotment == null) return false;
+        if (!allotment.take(quantity) && !refillAndTake(dishId, allotment, quantity)) return false;
+        eventPublisher.publishEvent(new DishChangedEvent(dishId, DishChangedEvent.Change.STOCK));
+        return true;
+    }
+
+    /** Units claimed from each hot dish's row and not sold yet. */
+    public Map<Long, Integer> heldUnits() {
+        Map<Long, Integer> held = new HashMap<>();
+        allotments.forEach((dishId, allotment) -> held.put(dishId, allotment.available()));
+        return held;
+    }
+
+    // Promotes dishes that got busy and gives back what cooled dishes did not sell
+    @Scheduled(fixedDelayString = "${app.stock.sweep-interval}")
+    public void sweep() {
+        demand.forEach((dishId, counter) -> {
+            long seen = counter.sumThenReset();
+            if (seen >= hotThreshold) {
+                allotments.computeIfAbsent(dishId, id -> new Allotment());
+                return;
+            }
+            if (seen == 0) demand.remove(dishId, counter);
+            Allotment cooled = allotments.remove(dishId);
+            if (cooled != null) giveBack(dishId, cooled);
+        });
+    }
+
+    // Anything claimed before the commit (even a refill racing the write) is dropped: stock may read low
+    // until the next write, but the units can never be sold twice
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockOverwritten(DishStockOverwrittenEvent event) {
+        if (event.dishId() == null) {
+            allotments.forEach((dishId, allotment) -> {
+                if (allotments.remove(dishId, allotment)) discard(dishId, allotment);
+            });
+            return;
+        }
+        Allotment overwritten = allotments.remove(event.dishId());
+        if (overwritten != null) discard(event.dishId(), overwritten);
+    }
+
+    @PreDestroy
+    public void giveBackAll() {
+        allotments.forEach((dishId, allotment) -> {
+            allotments.remove(dishId, allotment);
+            giveBack(dishId, allotment);
+        });
+    }
+
+    private boolean refillAndTake(Long dishId, Allotment allotment, int quantity) {
+        allotment.refill.lock();
+        try {
+            // another seller may have refilled while we waited for the lock
+            if (allotment.take(quantity)) return true;
+            if (allotment.retired) return false;
+            int block = Math.max(blockSize, quantity);
+            // fewer units left than a block: the caller sells straight from the row until it runs out
+            if (!changeStock(dishId, block, units -> dishRepository.decrementStock(dishId, units) == 1)) return false;
+            allotment.add(block - quantity);
+            return true;
+        } finally {
+            allotment.refill.unlock();
+        }
+    }
+
+    private void giveBack(Long dishId, Allotment allotment) {
+        int unsold = retire(allotment);
+        if (unsold > 0 && changeStock(dishId, unsold, units -> dishRepository.incrementStock(dishId, units) == 1))
+            log.debug("Returned {} unsold units of dish {}", unsold, dishId);
+    }
+
+    private void discard(Long dishId, Allotment allotment) {
+        int unsold = retire(allotment);
+        if (unsold > 0) log.debug("Dropped {} claimed units of dish {} after its stock was overwritten", unsold, dishId);
+    }
+
+    // no refill can follow, so the drained count is final
+    private static int retire(Allotment allotment) {
+        allotment.refill.lock();
+        try {
+            allotment.retired = true;
+            return allotment.drain();
+        } finally {
+            allotment.refill.unlock();
+        }
+    }
+
+    // Claims and returns commit on their own, whatever the transaction of the sale that triggered them
+    private boolean changeStock(Long dishId, int units, IntPredicate update) {
+        TransactionTemplate newTx = new TransactionTemplate(transactionManager);
+        newTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        newTx.setTimeout(DishService.WRITE_TIMEOUT_SECONDS);
+        return Boolean.TRUE.equals(newTx.execute(status -> {
+            boolean changed = update.test(units);
+            if (changed) eventPublisher.publishEvent(new DishChangedEvent(dishId, DishChangedEvent.Change.STOCK));
+            return changed;
+        }));
+    }
+
+    private static final class Allotment {
+
+        private final AtomicIntegerArray stripes = new AtomicIntegerArray(STRIPES);
+        private final ReentrantLock refill = new ReentrantLock();
+        private volatile boolean retired;
+
+        // sellers start on their own stripe, so concurrent sales rarely CAS the same slot
+        boolean take(int quantity) {
+            int home = home();
+            for (int i = 0; i < STRIPES; i++) {
+                int stripe = (home + i) & (STRIPES - 1);
+                int available;
+                while ((available = stripes.get(stripe)) >= quantity) {
+                    if (stripes.compareAndSet(stripe, available, available - quantity)) return true;
+                }
+            }
+            return false;
+        }
+
+        void add(int units) {
+            stripes.addAndGet(home(), units);
+        }
+
+        int available() {
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) total += stripes.get(i);
+            return total;
+        }
+
+        int drain() {
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) total += stripes.getAndSet(i, 0);
+            return total;
+        }
+
+        private static int home() {
+            return (int) Thread.currentThread().getId() & (STRIPES - 1);
+        }
+    }
+
+}
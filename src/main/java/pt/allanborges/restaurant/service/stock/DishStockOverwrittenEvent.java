@@ -0,0 +1,8 @@
+package pt.allanborges.restaurant.service.stock;
+
+/**
+ * Published when a dish's stock is set to an absolute value (PUT, bulk upsert) rather than moved by a sale.
+ * Units an allotment holds were claimed against the old value, so {@link DishStockAllotments} drops them once
+ * the write has been committed. A null dish id stands for a bulk upsert.
+ */
+public record DishStockOverwrittenEvent(Long dishId) {}
@@ -0,0 +1,17 @@
+package pt.allanborges.restaurant.utils;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // @JsonFilter beans (DishDTO) serialize every property unless a request supplies its own filter
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer defaultJsonFilters() {
+        return builder -> builder.filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+
+}
@@ -0,0 +1,122 @@
+-- Schema as previously generated by Hibernate (ddl-auto: update).
+-- Databases that already have these tables are baselined at this version and skip it.
+
+CREATE TABLE USERS (
+    ID               NUMBER(19, 0) GENERATED BY DEFAULT ON NULL AS IDENTITY,
+    CREATED_BY       VARCHAR2(255 CHAR),
+    CREATED_DATE     TIMESTAMP(6),
+    UPDATED_BY       VARCHAR2(255 CHAR),
+    UPDATED_DATE     TIMESTAMP(6),
+    INACTIVATED_BY   VARCHAR2(255 CHAR),
+    INACTIVATED_DATE TIMESTAMP(6),
+    USERNAME         VARCHAR2(80 CHAR)  NOT NULL,
+    PASSWORD_HASH    VARCHAR2(200 CHAR) NOT NULL,
+    NAME             VARCHAR2(120 CHAR) NOT NULL,
+    EMAIL            VARCHAR2(180 CHAR) NOT NULL,
+    NIF              VARCHAR2(20 CHAR),
+    ENABLED          NUMBER(1, 0)       NOT NULL,
+    CONSTRAINT PK_USERS PRIMARY KEY (ID),
+    CONSTRAINT UK_USERS_USERNAME UNIQUE (USERNAME),
+    CONSTRAINT UK_USERS_EMAIL UNIQUE (EMAIL),
+    CONSTRAINT UK_USERS_NIF UNIQUE (NIF)
+);
+
+CREATE TABLE USER_ROLES (
+    USER_ID NUMBER(19, 0)     NOT NULL,
+    ROLE    VARCHAR2(20 CHAR) NOT NULL,
+    CONSTRAINT PK_USER_ROLES PRIMARY KEY (USER_ID, ROLE),
+    CONSTRAINT FK_USER_ROLES_USER FOREIGN KEY (USER_ID) REFERENCES USERS (ID),
+    CONSTRAINT CK_USER_ROLES_ROLE CHECK (ROLE IN ('ADMIN', 'WAITER', 'CLIENT', 'KITCHEN'))
+);
+
+CREATE TABLE USER_ADDRESSES (
+    ID               NUMBER(19, 0) GENERATED BY DEFAULT ON NULL AS IDENTITY,
+    CREATED_BY       VARCHAR2(255 CHAR),
+    CREATED_DATE     TIMESTAMP(6),
+    UPDATED_BY       VARCHAR2(255 CHAR),
+    UPDATED_DATE     TIMESTAMP(6),
+    INACTIVATED_BY   VARCHAR2(255 CHAR),
+    INACTIVATED_DATE TIMESTAMP(6),
+    USER_ID          NUMBER(19, 0)      NOT NULL,
+    STREET_NAME      VARCHAR2(200 CHAR) NOT NULL,
+    DOOR_NUMBER      VARCHAR2(30 CHAR),
+    POSTAL_CODE      VARCHAR2(20 CHAR)  NOT NULL,
+    DISTRICT         VARCHAR2(100 CHAR) NOT NULL,
+    MUNICIPALITY     VARCHAR2(100 CHAR) NOT NULL,
+    NEIGHBORHOOD     VARCHAR2(100 CHAR),
+    IS_PRIMARY       NUMBER(1, 0)       NOT NULL,
+    CONSTRAINT PK_USER_ADDRESSES PRIMARY KEY (ID),
+    CONSTRAINT FK_USER_ADDRESSES_USER FOREIGN KEY (USER_ID) REFERENCES USERS (ID)
+);
+
+CREATE TABLE DISH_CODES (
+    ID               NUMBER(19, 0) GENERATED BY DEFAULT ON NULL AS IDENTITY,
+    CREATED_BY       VARCHAR2(255 CHAR),
+    CREATED_DATE     TIMESTAMP(6),
+    UPDATED_BY       VARCHAR2(255 CHAR),
+    UPDATED_DATE     TIMESTAMP(6),
+    INACTIVATED_BY   VARCHAR2(255 CHAR),
+    INACTIVATED_DATE TIMESTAMP(6),
+    CODE             VARCHAR2(64 CHAR)  NOT NULL,
+    DESCRIPTION      VARCHAR2(200 CHAR),
+    CONSTRAINT PK_DISH_CODES PRIMARY KEY (ID),
+    CONSTRAINT UK_DISH_CODES_CODE UNIQUE (CODE)
+);
+
+CREATE TABLE DISHES (
+    ID               NUMBER(19, 0) GENERATED BY DEFAULT ON NULL AS IDENTITY,
+    CREATED_BY       VARCHAR2(255 CHAR),
+    CREATED_DATE     TIMESTAMP(6),
+    UPDATED_BY       VARCHAR2(255 CHAR),
+    UPDATED_DATE     TIMESTAMP(6),
+    INACTIVATED_BY   VARCHAR2(255 CHAR),
+    INACTIVATED_DATE TIMESTAMP(6),
+    NAME             VARCHAR2(200 CHAR)  NOT NULL,
+    DESCRIPTION      VARCHAR2(1000 CHAR),
+    PRICE            NUMBER(12, 2)       NOT NULL,
+    STOCK            NUMBER(10, 0)       NOT NULL,
+    CODE_ID          NUMBER(19, 0)       NOT NULL,
+    IMAGE_URL        VARCHAR2(400 CHAR),
+    CONSTRAINT PK_DISHES PRIMARY KEY (ID),
+    CONSTRAINT FK_DISHES_CODE FOREIGN KEY (CODE_ID) REFERENCES DISH_CODES (ID)
+);
+
+CREATE TABLE ORDERS (
+    ID               NUMBER(19, 0) GENERATED BY DEFAULT ON NULL AS IDENTITY,
+    CREATED_BY       VARCHAR2(255 CHAR),
+    CREATED_DATE     TIMESTAMP(6),
+    UPDATED_BY       VARCHAR2(255 CHAR),
+    UPDATED_DATE     TIMESTAMP(6),
+    INACTIVATED_BY   VARCHAR2(255 CHAR),
+    INACTIVATED_DATE TIMESTAMP(6),
+    ORDER_CODE       VARCHAR2(40 CHAR),
+    STATUS           VARCHAR2(20 CHAR)   NOT NULL,
+    CUSTOMER_NAME    VARCHAR2(120 CHAR),
+    CUSTOMER_EMAIL   VARCHAR2(160 CHAR),
+    NOTES            VARCHAR2(1000 CHAR),
+    TOTAL            NUMBER(12, 2)       NOT NULL,
+    PLACED_AT        TIMESTAMP(6),
+    PAID_AT          TIMESTAMP(6),
+    CONSTRAINT PK_ORDERS PRIMARY KEY (ID),
+    CONSTRAINT UK_ORDERS_ORDER_CODE UNIQUE (ORDER_CODE),
+    CONSTRAINT CK_ORDERS_STATUS CHECK (STATUS IN ('PENDING', 'PAID', 'PREPARING', 'READY', 'COMPLETED', 'CANCELLED'))
+);
+
+CREATE TABLE ORDER_ITEMS (
+    ID               NUMBER(19, 0) GENERATED BY DEFAULT ON NULL AS IDENTITY,
+    CREATED_BY       VARCHAR2(255 CHAR),
+    CREATED_DATE     TIMESTAMP(6),
+    UPDATED_BY       VARCHAR2(255 CHAR),
+    UPDATED_DATE     TIMESTAMP(6),
+    INACTIVATED_BY   VARCHAR2(255 CHAR),
+    INACTIVATED_DATE TIMESTAMP(6),
+    ORDER_ID         NUMBER(19, 0)      NOT NULL,
+    DISH_ID          NUMBER(19, 0)      NOT NULL,
+    DISH_NAME        VARCHAR2(200 CHAR) NOT NULL,
+    UNIT_PRICE       NUMBER(12, 2)      NOT NULL,
+    QUANTITY         NUMBER(10, 0)      NOT NULL,
+    LINE_TOTAL       NUMBER(12, 2)      NOT NULL,
+    CONSTRAINT PK_ORDER_ITEMS PRIMARY KEY (ID),
+    CONSTRAINT FK_ORDER_ITEMS_ORDER FOREIGN KEY (ORDER_ID) REFERENCES ORDERS (ID),
+    CONSTRAINT FK_ORDER_ITEMS_DISH FOREIGN KEY (DISH_ID) REFERENCES DISHES (ID)
+);
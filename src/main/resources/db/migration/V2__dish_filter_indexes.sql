@@ -0,0 +1,20 @@
+-- Indexes for the predicates and sort keys of the dish listings (DishServiceImpl.buildPredicates / resolvePath).
+-- Every listing filters on INACTIVATED_DATE IS NULL. Oracle does not index entries whose columns are all
+-- NULL, so INACTIVATED_DATE always leads a composite with a NOT NULL trailing column (ID) to stay indexable.
+
+-- active dishes in id order: default listing and keyset pages ordered by id
+CREATE INDEX IX_DISHES_ACTIVE_ID ON DISHES (INACTIVATED_DATE, ID);
+
+-- createdDateFrom / createdDateTo ranges
+CREATE INDEX IX_DISHES_ACTIVE_CREATED ON DISHES (INACTIVATED_DATE, CREATED_DATE, ID);
+
+-- price / stock equality filters, and sorting or seeking by price, stock and name
+CREATE INDEX IX_DISHES_ACTIVE_PRICE ON DISHES (INACTIVATED_DATE, PRICE, ID);
+CREATE INDEX IX_DISHES_ACTIVE_STOCK ON DISHES (INACTIVATED_DATE, STOCK, ID);
+CREATE INDEX IX_DISHES_ACTIVE_NAME ON DISHES (INACTIVATED_DATE, NAME, ID);
+
+-- code filter: join from the matching codes, also the foreign key index of DISHES.CODE_ID
+CREATE INDEX IX_DISHES_CODE ON DISHES (CODE_ID, INACTIVATED_DATE, ID);
+
+-- lower(code) IN (...) issued by the code filter
+CREATE INDEX IX_DISH_CODES_LOWER_CODE ON DISH_CODES (LOWER(CODE));
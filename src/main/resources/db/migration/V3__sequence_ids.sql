@@ -0,0 +1,21 @@
+-- Ids move from IDENTITY columns to pooled sequences (allocation size 50), so Hibernate can batch inserts.
+-- Names follow Hibernate's implicit <entity>_SEQ naming through the camel-case physical naming strategy.
+-- The pooled optimizer hands out (value - 49 .. value), hence every sequence starts 50 above the current max id.
+
+DECLARE
+    PROCEDURE to_sequence(p_table VARCHAR2, p_sequence VARCHAR2) IS
+        v_start NUMBER;
+    BEGIN
+        EXECUTE IMMEDIATE 'SELECT NVL(MAX(ID), 0) + 50 FROM ' || p_table INTO v_start;
+        EXECUTE IMMEDIATE 'CREATE SEQUENCE ' || p_sequence || ' START WITH ' || v_start || ' INCREMENT BY 50';
+        EXECUTE IMMEDIATE 'ALTER TABLE ' || p_table || ' MODIFY ID DROP IDENTITY';
+    END;
+BEGIN
+    to_sequence('USERS', 'USER_ACCOUNT_SEQ');
+    to_sequence('USER_ADDRESSES', 'ADDRESS_SEQ');
+    to_sequence('DISH_CODES', 'DISH_CODE_SEQ');
+    to_sequence('DISHES', 'DISH_SEQ');
+    to_sequence('ORDERS', 'ORDER_SEQ');
+    to_sequence('ORDER_ITEMS', 'ORDER_ITEM_SEQ');
+END;
+/
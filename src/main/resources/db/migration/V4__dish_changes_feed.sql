@@ -0,0 +1,9 @@
+-- Delta feed (GET /v1/dishes/changes): rows whose UPDATED_DATE or INACTIVATED_DATE falls inside (since, watermark].
+-- Auditing stamps UPDATED_DATE on insert and on every update, and the stock statements stamp it too; rows written
+-- before that get their creation time, so a row never lacks one.
+UPDATE DISHES SET UPDATED_DATE = NVL(CREATED_DATE, LOCALTIMESTAMP) WHERE UPDATED_DATE IS NULL;
+UPDATE DISH_CODES SET UPDATED_DATE = NVL(CREATED_DATE, LOCALTIMESTAMP) WHERE UPDATED_DATE IS NULL;
+
+-- UPDATED_DATE ranges; INACTIVATED_DATE ranges on DISHES are served by IX_DISHES_ACTIVE_ID (V2)
+CREATE INDEX IX_DISHES_UPDATED ON DISHES (UPDATED_DATE, ID);
+CREATE INDEX IX_DISH_CODES_UPDATED ON DISH_CODES (UPDATED_DATE, ID);
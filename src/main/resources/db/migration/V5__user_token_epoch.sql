@@ -0,0 +1,2 @@
+-- Tokens issued before this instant are rejected (logout everywhere / admin revocation); NULL accepts all
+ALTER TABLE USERS ADD TOKENS_VALID_AFTER TIMESTAMP(6);
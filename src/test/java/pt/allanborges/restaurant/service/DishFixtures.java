@@ -0,0 +1,66 @@
+package pt.allanborges.restaurant.service;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import pt.allanborges.restaurant.model.dtos.DishCodeDTO;
+import pt.allanborges.restaurant.model.dtos.DishDTO;
+import pt.allanborges.restaurant.service.catalog.DishCatalog;
+import pt.allanborges.restaurant.service.catalog.DishChangedEvent;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dishes and helpers shared by the tests guarding the dish read paths.
+ */
+final class DishFixtures {
+
+    /** Statement inspector property recording into {@link CapturedStatements}. */
+    static final String CAPTURE_STATEMENTS = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "pt.allanborges.restaurant.service.DishFixtures$CapturedStatements";
+
+    private DishFixtures() {
+    }
+
+    /** Creates one dish for each of {@code count} new codes and returns those codes. */
+    static List<String> seedDishesWithDistinctCodes(DishService dishService, String prefix, int count) {
+        List<String> codes = new ArrayList<>();
+        long suffix = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            String code = prefix + "_" + i + "_" + suffix;
+            codes.add(code);
+            dishService.createDish(dish(code));
+        }
+        return codes;
+    }
+
+    // Seeded rows that are rolled back never commit, so nothing invalidates the catalog on its own
+    static void dropCatalogSnapshot(DishCatalog dishCatalog) {
+        dishCatalog.onDishChanged(new DishChangedEvent(null));
+    }
+
+    static DishDTO dish(String code) {
+        return DishDTO.builder()
+                .name("Seeded dish " + code)
+                .description("Dish seeded for the read path tests")
+                .price(new BigDecimal("9.90"))
+                .stock(10)
+                .code(DishCodeDTO.builder().code(code).build())
+                .imageUrl("https://example.com/" + code + ".jpg")
+                .build();
+    }
+
+    /** Records the SQL Hibernate prepares, see {@link #CAPTURE_STATEMENTS}. */
+    public static class CapturedStatements implements StatementInspector {
+
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+
+}
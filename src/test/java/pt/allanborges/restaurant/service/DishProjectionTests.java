@@ -0,0 +1,129 @@
+package pt.allanborges.restaurant.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import pt.allanborges.restaurant.model.dtos.DishDTO;
+import pt.allanborges.restaurant.model.dtos.DishFilterDTO;
+import pt.allanborges.restaurant.model.entities.Dish;
+import pt.allanborges.restaurant.model.mapper.DishMapper;
+import pt.allanborges.restaurant.service.catalog.DishCatalog;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the projection listings: they must not hydrate a single entity, and must take no more statements or
+ * columns than loading the active {@link Dish} entities with their codes fetch-joined and mapping them.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        DishFixtures.CAPTURE_STATEMENTS})
+@Transactional
+class DishProjectionTests {
+
+    private static final int DISTINCT_CODES = 3;
+
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private DishCatalog dishCatalog;
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private final DishFilterDTO filter = new DishFilterDTO();
+
+    @BeforeEach
+    void seedDishesWithDistinctCodes() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        filter.setCode(DishFixtures.seedDishesWithDistinctCodes(dishService, "PJ", DISTINCT_CODES));
+
+        // both paths start cold: nothing in the persistence context, the second-level cache or the catalog
+        entityManager.flush();
+        entityManager.clear();
+        entityManager.getEntityManagerFactory().getCache().evictAll();
+        dropCatalogSnapshot();
+        statistics.clear();
+        DishFixtures.CapturedStatements.SQL.clear();
+    }
+
+    @AfterEach
+    void dropCatalogSnapshot() {
+        DishFixtures.dropCatalogSnapshot(dishCatalog);
+    }
+
+    @Test
+    void catalogLoadHydratesNoEntities() {
+        assertTrue(dishService.findAllDishes().size() >= DISTINCT_CODES);
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+    }
+
+    @Test
+    void catalogLoadReadsNoMoreThanFetchJoinedEntities() {
+        int projected = dishService.findAllDishes().size();
+        int projectedStatements = DishFixtures.CapturedStatements.SQL.size();
+        int projectedColumns = selectedColumns();
+        DishFixtures.CapturedStatements.SQL.clear();
+
+        // the entity path at its best: one statement, codes fetched with their dishes
+        List<DishDTO> mapped = dishMapper.toDTOList(entityManager
+                .createQuery("select d from Dish d join fetch d.code where d.inactivatedDate is null", Dish.class)
+                .getResultList());
+        int mappedStatements = DishFixtures.CapturedStatements.SQL.size();
+        int mappedColumns = selectedColumns();
+
+        assertEquals(projected, mapped.size());
+        assertEquals(1, projectedStatements);
+        assertEquals(1, mappedStatements);
+        // the same dish and code columns, less the code foreign key; the saving is the hydration below
+        assertTrue(projectedColumns <= mappedColumns,
+                () -> "projection read " + projectedColumns + " columns, entities " + mappedColumns);
+        assertTrue(statistics.getEntityLoadCount() >= projected + DISTINCT_CODES);
+    }
+
+    @Test
+    void sparseListingSelectsOnlyTheRequestedColumns() {
+        filter.setFields("name");
+        var slice = dishService.findAllDishesWithCursor("", 10, "ASC", "id", filter);
+
+        assertEquals(DISTINCT_CODES, slice.getContent().size());
+        assertEquals(0, statistics.getEntityLoadCount());
+        // id and name, where a Dish entity row is thirteen columns
+        assertEquals(2, selectedColumns());
+    }
+
+    // Columns in the SELECT lists of every statement captured so far
+    private static int selectedColumns() {
+        int columns = 0;
+        for (String sql : DishFixtures.CapturedStatements.SQL) {
+            String lower = sql.toLowerCase(Locale.ROOT);
+            if (!lower.startsWith("select")) continue;
+            int depth = 0;
+            int count = 1;
+            int end = lower.indexOf(" from ");
+            for (int i = "select".length(); i < end; i++) {
+                char c = lower.charAt(i);
+                if (c == '(') depth++;
+                else if (c == ')') depth--;
+                else if (c == ',' && depth == 0) count++;
+            }
+            columns += count;
+        }
+        return columns;
+    }
+
+}
@@ -0,0 +1,89 @@
+package pt.allanborges.restaurant.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import pt.allanborges.restaurant.model.dtos.DishFilterDTO;
+import pt.allanborges.restaurant.service.catalog.DishCatalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the fetch plans of the dish list paths: dishes and their codes must come back
+ * in a single round trip no matter how many distinct codes the page contains.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class DishQueryCountTests {
+
+    private static final int DISTINCT_CODES = 3;
+
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private DishCatalog dishCatalog;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private final DishFilterDTO filter = new DishFilterDTO();
+
+    @BeforeEach
+    void seedDishesWithDistinctCodes() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        filter.setCode(DishFixtures.seedDishesWithDistinctCodes(dishService, "QC", DISTINCT_CODES));
+
+        // nothing may be served from the persistence context or a previous catalog snapshot
+        entityManager.flush();
+        entityManager.clear();
+        dropCatalogSnapshot();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void dropCatalogSnapshot() {
+        DishFixtures.dropCatalogSnapshot(dishCatalog);
+    }
+
+    @Test
+    void findAllDishesUsesOneStatement() {
+        assertTrue(dishService.findAllDishes().size() >= DISTINCT_CODES);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findDishByIdIsServedByTheCatalogLoad() {
+        Long id = dishService.findAllDishesWithCursor("", 1, "ASC", "id", filter).getContent().get(0).getId();
+        statistics.clear();
+
+        dishService.getDishById(id);
+        dishService.getDishById(id);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void pagedDishesSortedAndFilteredByCodeUseOnePageAndOneCountStatement() {
+        var page = dishService.findAllDishesPaginatedWithFilters(0, 10, "ASC", "code", filter);
+        assertEquals(DISTINCT_CODES, page.getContent().size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void cursorDishesUseOneStatementPerSlice() {
+        var first = dishService.findAllDishesWithCursor("", 2, "ASC", "code", filter);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        var second = dishService.findAllDishesWithCursor(first.getNextCursor(), 2, "ASC", "code", filter);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(DISTINCT_CODES, first.getContent().size() + second.getContent().size());
+    }
+
+}
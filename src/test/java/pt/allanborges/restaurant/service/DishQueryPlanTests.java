@@ -0,0 +1,182 @@
+package pt.allanborges.restaurant.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pt.allanborges.restaurant.model.dtos.DishFilterDTO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fails when a dish filter path can no longer be answered from an index. The SQL Hibernate issues for each
+ * filter is captured and explained with index access made as cheap as possible, so any remaining full scan
+ * of DISHES means no index matches the predicate shape any more.
+ * <p>
+ * Name and description filters are substring LIKEs and are deliberately left out.
+ */
+@SpringBootTest(properties = DishFixtures.CAPTURE_STATEMENTS)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DishQueryPlanTests {
+
+    private static final Pattern DISHES_TABLE = Pattern.compile("\\bDISHES\\b", Pattern.CASE_INSENSITIVE);
+    private static final int CODES = 40;
+    private static final int DISHES_PER_CODE = 250;
+
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String codePrefix = "PLAN_" + System.nanoTime() + "_";
+
+    @BeforeAll
+    void seedCatalog() {
+        jdbcTemplate.update("""
+                INSERT INTO DISH_CODES (ID, CODE, DESCRIPTION, CREATED_DATE)
+                SELECT DISH_CODE_SEQ.NEXTVAL, ? || LEVEL, 'Seeded for query plan checks', SYSTIMESTAMP FROM DUAL CONNECT BY LEVEL <= ?
+                """, codePrefix, CODES);
+        jdbcTemplate.update("""
+                INSERT INTO DISHES (ID, NAME, DESCRIPTION, PRICE, STOCK, CODE_ID, CREATED_DATE)
+                SELECT DISH_SEQ.NEXTVAL, 'Plan dish ' || c.CODE || ' ' || n.LVL, 'Seeded for query plan checks',
+                       1 + MOD(n.LVL * 37, 20000) / 100, MOD(n.LVL * 13, 1000), c.ID,
+                       SYSTIMESTAMP - NUMTODSINTERVAL(MOD(n.LVL, 400), 'DAY')
+                FROM (SELECT LEVEL AS LVL FROM DUAL CONNECT BY LEVEL <= ?) n
+                CROSS JOIN DISH_CODES c
+                WHERE c.CODE LIKE ? || '%'
+                """, DISHES_PER_CODE, codePrefix);
+        gatherStatistics();
+    }
+
+    @AfterAll
+    void removeCatalog() {
+        jdbcTemplate.update("DELETE FROM DISHES WHERE CODE_ID IN (SELECT ID FROM DISH_CODES WHERE CODE LIKE ? || '%')", codePrefix);
+        jdbcTemplate.update("DELETE FROM DISH_CODES WHERE CODE LIKE ? || '%'", codePrefix);
+        gatherStatistics();
+    }
+
+    @BeforeEach
+    void forgetStatements() {
+        DishFixtures.CapturedStatements.SQL.clear();
+    }
+
+    @Test
+    void idFilterUsesAnIndex() {
+        DishFilterDTO filter = new DishFilterDTO();
+        filter.setId("1");
+        assertNoFullScanOfDishes(filter);
+    }
+
+    @Test
+    void codeFilterUsesAnIndex() {
+        DishFilterDTO filter = new DishFilterDTO();
+        filter.setCode(List.of(codePrefix.toLowerCase() + "7"));
+        assertNoFullScanOfDishes(filter);
+    }
+
+    @Test
+    void priceFilterUsesAnIndex() {
+        DishFilterDTO filter = new DishFilterDTO();
+        filter.setPrice("42.50");
+        assertNoFullScanOfDishes(filter);
+    }
+
+    @Test
+    void stockFilterUsesAnIndex() {
+        DishFilterDTO filter = new DishFilterDTO();
+        filter.setStock("17");
+        assertNoFullScanOfDishes(filter);
+    }
+
+    @Test
+    void createdDateRangeUsesAnIndex() {
+        LocalDate day = LocalDate.now().minusDays(200);
+        DishFilterDTO filter = new DishFilterDTO();
+        filter.setCreatedDateFrom(day.toString());
+        filter.setCreatedDateTo(day.toString());
+        assertNoFullScanOfDishes(filter);
+    }
+
+    private void assertNoFullScanOfDishes(DishFilterDTO filter) {
+        dishService.findAllDishesPaginatedWithFilters(0, 10, "DESC", "id", filter);
+
+        List<String> statements = DishFixtures.CapturedStatements.SQL.stream().filter(sql -> DISHES_TABLE.matcher(sql).find()).toList();
+        assertFalse(statements.isEmpty(), "no statement against DISHES was captured");
+
+        for (String sql : statements) {
+            List<String> plan = explain(sql);
+            assertTrue(plan.stream().noneMatch(step -> step.startsWith("TABLE ACCESS") && step.contains("FULL") && step.endsWith(" DISHES")),
+                    () -> "full scan of DISHES for\n" + sql + "\n" + String.join("\n", plan));
+        }
+    }
+
+    private List<String> explain(String sql) {
+        String statementId = "DISH_PLAN_" + System.nanoTime();
+        return jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            try (Statement session = connection.createStatement()) {
+                // make every usable index win over a full scan, whatever the size of the seeded data
+                session.execute("ALTER SESSION SET OPTIMIZER_INDEX_COST_ADJ = 1");
+            }
+            try {
+                try (PreparedStatement explain = connection.prepareStatement(
+                        "EXPLAIN PLAN SET STATEMENT_ID = '" + statementId + "' FOR " + sql)) {
+                    for (int i = 1; i <= bindCount(sql); i++) {
+                        explain.setNull(i, Types.VARCHAR);
+                    }
+                    explain.execute();
+                }
+                return readPlan(connection, statementId);
+            } finally {
+                try (Statement session = connection.createStatement()) {
+                    session.execute("ALTER SESSION SET OPTIMIZER_INDEX_COST_ADJ = 100");
+                    session.execute("DELETE FROM PLAN_TABLE WHERE STATEMENT_ID = '" + statementId + "'");
+                }
+            }
+        });
+    }
+
+    private static List<String> readPlan(Connection connection, String statementId) throws SQLException {
+        List<String> steps = new ArrayList<>();
+        try (PreparedStatement plan = connection.prepareStatement(
+                "SELECT OPERATION, OPTIONS, OBJECT_NAME FROM PLAN_TABLE WHERE STATEMENT_ID = ? ORDER BY ID")) {
+            plan.setString(1, statementId);
+            try (ResultSet rs = plan.executeQuery()) {
+                while (rs.next()) {
+                    steps.add(rs.getString(1) + " " + nullToEmpty(rs.getString(2)) + " " + nullToEmpty(rs.getString(3)));
+                }
+            }
+        }
+        return steps;
+    }
+
+    private void gatherStatistics() {
+        jdbcTemplate.execute("BEGIN DBMS_STATS.GATHER_TABLE_STATS(USER, 'DISH_CODES', cascade => TRUE); END;");
+        jdbcTemplate.execute("BEGIN DBMS_STATS.GATHER_TABLE_STATS(USER, 'DISHES', cascade => TRUE); END;");
+    }
+
+    private static int bindCount(String sql) {
+        return (int) sql.chars().filter(c -> c == '?').count();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+}
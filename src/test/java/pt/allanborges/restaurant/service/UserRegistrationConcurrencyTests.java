@@ -0,0 +1,129 @@
+package pt.allanborges.restaurant.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import pt.allanborges.restaurant.controller.handlers.exceptions.DuplicateUserException;
+import pt.allanborges.restaurant.repository.UserAccountRepository;
+import pt.allanborges.restaurant.security.dtos.RegisterUserRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the registration path: uniqueness is checked in a single query, and registrations racing for the
+ * same username, e-mail or NIF end with one account and a 409 for everyone else.
+ * Not transactional, since the racing registrations have to commit.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UserRegistrationConcurrencyTests {
+
+    private static final int RACERS = 16;
+
+    @Autowired
+    private UserAccountService userService;
+    @Autowired
+    private UserAccountRepository userAccountRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private final List<String> usernames = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void deleteRegisteredUsers() {
+        usernames.forEach(username -> userAccountRepository.findByUsername(username).ifPresent(userAccountRepository::delete));
+    }
+
+    @Test
+    void registrationChecksUniquenessInOneQuery() {
+        statistics.clear();
+        userService.userRegister(request("one", nif()));
+
+        // the old path ran one lookup per unique column
+        assertEquals(1, statistics.getQueryExecutionCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+    }
+
+    @Test
+    void duplicateIsRejectedBeforeAnyInsert() {
+        RegisterUserRequest first = request("dup", nif());
+        userService.userRegister(first);
+        statistics.clear();
+
+        var sameEmail = new RegisterUserRequest(first.username() + "x", "secret123", "Other", first.email(), nif(), null);
+        var ex = assertThrows(DuplicateUserException.class, () -> userService.userRegister(sameEmail));
+        assertEquals("E-mail already exists", ex.getMessage());
+        assertEquals(1, statistics.getQueryExecutionCount());
+        assertEquals(0, statistics.getEntityInsertCount());
+    }
+
+    @Test
+    void concurrentRegistrationsOfTheSameUserCreateOneAccount() throws Exception {
+        RegisterUserRequest request = request("race", nif());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(RACERS);
+        try {
+            List<Future<?>> attempts = new ArrayList<>();
+            for (int i = 0; i < RACERS; i++) {
+                attempts.add(pool.submit(() -> {
+                    start.await();
+                    return userService.userRegister(request);
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            int conflicts = 0;
+            for (Future<?> attempt : attempts) {
+                try {
+                    attempt.get();
+                    created++;
+                } catch (ExecutionException e) {
+                    // whether the check or the unique constraint caught it, the caller sees the same 409
+                    assertTrue(e.getCause() instanceof DuplicateUserException, () -> "unexpected " + e.getCause());
+                    conflicts++;
+                }
+            }
+
+            assertEquals(1, created);
+            assertEquals(RACERS - 1, conflicts);
+            assertEquals(1, userAccountRepository.findAll().stream()
+                    .filter(user -> user.getUsername().equals(request.username()))
+                    .count());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private RegisterUserRequest request(String prefix, String nif) {
+        String username = prefix + "_" + Long.toString(System.nanoTime(), 36);
+        usernames.add(username);
+        usernames.add(username + "x");
+        return new RegisterUserRequest(username, "secret123", "Registration test", username + "@example.com", nif, null);
+    }
+
+    private static String nif() {
+        return String.format("%09d", Math.floorMod(System.nanoTime(), 1_000_000_000L));
+    }
+
+}